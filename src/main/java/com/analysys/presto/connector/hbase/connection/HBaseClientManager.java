@@ -15,19 +15,42 @@ package com.analysys.presto.connector.hbase.connection;
 
 import com.analysys.presto.connector.hbase.meta.HBaseConfig;
 import com.analysys.presto.connector.hbase.meta.HBaseTable;
+import com.analysys.presto.connector.hbase.meta.TableMetaRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import io.airlift.log.Logger;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.NamespaceDescriptor;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-
-import static com.analysys.presto.connector.hbase.utils.Constant.SYSTEMOUT_INTERVAL;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * HBase client manager
@@ -39,56 +62,192 @@ public class HBaseClientManager {
 
     private static final Logger log = Logger.get(HBaseClientManager.class);
 
-    private Connection connection;
+    /**
+     * Key of the only entry of namespace cache
+     */
+    private static final String ALL_NAMESPACES = "";
+
+    /**
+     * Connections are thread safe and heavy, they are created the first time they are used
+     * and shared by all splits, sinks and deletes of this catalog until the connector shuts down.
+     * Each slot is created under its own lock, so a slow ZooKeeper handshake only holds up the callers of that slot.
+     */
+    private final AtomicReferenceArray<Connection> connections;
+    private final Object[] connectionLocks;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private AsyncConnection asyncConnection;
     private HBaseConfig config;
+    private final TableMetaRegistry tableMetaRegistry;
+
+    /**
+     * Namespaces, table names and table descriptors are served from these caches while planning,
+     * entries are reloaded on this executor after metadata-cache-refresh-seconds,
+     * so a query never waits for a master RPC of a cached entry.
+     */
+    private final ExecutorService metadataRefreshExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("hbase-metadata-refresh-%s").setDaemon(true).build());
+    private final LoadingCache<String, Set<String>> namespaceCache;
+    private final LoadingCache<String, List<String>> tableNamesCache;
+    private final LoadingCache<TableName, Optional<TableDescriptor>> descriptorCache;
 
     @Inject
-    public HBaseClientManager(HBaseConfig config) {
+    public HBaseClientManager(HBaseConfig config, TableMetaRegistry tableMetaRegistry) {
         this.config = config;
         this.config.init();
-        this.connection = createConnection();
+        this.tableMetaRegistry = Objects.requireNonNull(tableMetaRegistry, "tableMetaRegistry is null");
+        this.connections = new AtomicReferenceArray<>(config.getConnectionPoolSize());
+        this.connectionLocks = new Object[config.getConnectionPoolSize()];
+        Arrays.setAll(connectionLocks, i -> new Object());
+        this.namespaceCache = buildMetadataCache(CacheLoader.from(key -> loadNamespaces()));
+        this.tableNamesCache = buildMetadataCache(CacheLoader.from(this::loadTableNames));
+        this.descriptorCache = buildMetadataCache(CacheLoader.from(this::loadDescriptor));
     }
 
-    public Connection createConnection() {
-        Configuration conf;
-        Connection connection;
+    private <K, V> LoadingCache<K, V> buildMetadataCache(CacheLoader<K, V> loader) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getMetadataCacheTtlSeconds(), TimeUnit.SECONDS)
+                .refreshAfterWrite(config.getMetadataCacheRefreshSeconds(), TimeUnit.SECONDS)
+                .maximumSize(config.getMetadataCacheMaxSize())
+                .build(CacheLoader.asyncReloading(loader, metadataRefreshExecutor));
+    }
+
+    private Connection createConnection() throws IOException {
+        long startTime = System.currentTimeMillis();
         try {
-            conf = HBaseConfiguration.create();
-            conf.set("hbase.zookeeper.quorum", config.getHbaseZookeeperQuorum());
-            conf.set("hbase.zookeeper.property.clientPort", config.getZookeeperClientPort());
-            conf.set("hbase.client.ipc.pool.size", "1");
-            //  RPC fail retry times
-            conf.set("hbase.client.retries.number", "3");
+            Connection connection = ConnectionFactory.createConnection(createConfiguration());
+            log.info("Create HBase connection succeed, used " + (System.currentTimeMillis() - startTime) + " mill sec");
+            return connection;
+        } catch (IOException ex) {
+            log.error(ex, "Create HBase connection failed, used " + (System.currentTimeMillis() - startTime)
+                    + " mill sec: " + ex.getMessage());
+            throw ex;
+        }
+    }
 
-            conf.set("zookeeper.znode.parent", config.getZookeeperZnodeParent());
+    /**
+     * Connections of the pool are handed out round robin, a closed or aborted one is replaced.
+     * Callers must not close the connection, close the Table or Admin they get from it instead.
+     *
+     * @return shared connection
+     * @throws IOException if we failed to create the connection
+     */
+    public Connection getConnection() throws IOException {
+        int index = Math.floorMod(nextConnection.getAndIncrement(), connections.length());
+        Connection connection = connections.get(index);
+        if (isUsable(connection)) {
+            return connection;
+        }
+        synchronized (connectionLocks[index]) {
+            connection = connections.get(index);
+            if (!isUsable(connection)) {
+                if (connection != null) {
+                    closeQuietly(connection);
+                }
+                connection = createConnection();
+                connections.set(index, connection);
+            }
+            return connection;
+        }
+    }
 
-            // set this param a bigger value to avoid SocketTimeoutException when you invoke scanner.next()
-            conf.set("hbase.client.scanner.timeout.period", "90000");
+    private static boolean isUsable(Connection connection) {
+        return connection != null && !connection.isClosed() && !connection.isAborted();
+    }
 
-            if (config.getHbaseIsDistributed() != null) {
-                conf.set("hbase.cluster.distributed", config.getHbaseIsDistributed());
-            }
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            log.error(e, e.getMessage());
+        }
+    }
+
+    /**
+     * Borrow a table from the shared connections, tables are lightweight and must be closed after use.
+     *
+     * @param schema    schema name
+     * @param tableName table name
+     * @return table
+     * @throws IOException if there is no connection or the table cannot be got
+     */
+    public Table borrowTable(String schema, String tableName) throws IOException {
+        return getConnection().getTable(TableName.valueOf(schema + ":" + tableName));
+    }
+
+    /**
+     * Async connection is thread safe and is shared by all batch gets of this worker,
+     * it will be created the first time it is used, and again once it has been closed.
+     *
+     * @return async connection
+     * @throws IOException if we failed to create the connection
+     */
+    public synchronized AsyncConnection getAsyncConnection() throws IOException {
+        if (asyncConnection == null || asyncConnection.isClosed()) {
             long startTime = System.currentTimeMillis();
-            connection = ConnectionFactory.createConnection(conf);
+            try {
+                asyncConnection = ConnectionFactory.createAsyncConnection(createConfiguration()).get();
+                log.info("Create HBase async connection succeed, used "
+                        + (System.currentTimeMillis() - startTime) + " mill sec");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException iioe = new InterruptedIOException("Create HBase async connection interrupted");
+                iioe.initCause(e);
+                throw iioe;
+            } catch (ExecutionException e) {
+                log.error(e.getCause(), "Create HBase async connection failed, used "
+                        + (System.currentTimeMillis() - startTime) + " mill sec: " + e.getCause().getMessage());
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Create HBase async connection failed", e.getCause());
+            }
+        }
+        return asyncConnection;
+    }
 
-            if (System.currentTimeMillis() % SYSTEMOUT_INTERVAL == 0) {
-                log.info("Create HBase connection " + (connection == null ? "succeed." : "failed.")
-                        + ", used " + (System.currentTimeMillis() - startTime) + " mill sec");
+    @PreDestroy
+    public synchronized void destroy() {
+        metadataRefreshExecutor.shutdownNow();
+        for (int i = 0; i < connections.length(); i++) {
+            synchronized (connectionLocks[i]) {
+                Connection connection = connections.getAndSet(i, null);
+                if (connection != null) {
+                    closeQuietly(connection);
+                }
             }
+        }
+        if (asyncConnection != null) {
+            try {
+                asyncConnection.close();
+            } catch (Exception e) {
+                log.error(e, e.getMessage());
+            }
+            asyncConnection = null;
+        }
+    }
 
-            return connection;
-        } catch (Exception ex) {
-            log.error(ex, ex.getMessage());
-            return null;
+    private Configuration createConfiguration() {
+        Configuration conf = HBaseConfiguration.create();
+        conf.set("hbase.zookeeper.quorum", config.getHbaseZookeeperQuorum());
+        conf.set("hbase.zookeeper.property.clientPort", config.getZookeeperClientPort());
+        conf.set("hbase.client.ipc.pool.size", String.valueOf(config.getClientIpcPoolSize()));
+        //  RPC fail retry times
+        conf.set("hbase.client.retries.number", "3");
+
+        conf.set("zookeeper.znode.parent", config.getZookeeperZnodeParent());
+
+        // set this param a bigger value to avoid SocketTimeoutException when you invoke scanner.next()
+        conf.set("hbase.client.scanner.timeout.period", "90000");
+
+        if (config.getHbaseIsDistributed() != null) {
+            conf.set("hbase.cluster.distributed", config.getHbaseIsDistributed());
         }
+        return conf;
     }
 
     public Admin getAdmin() {
         try {
-            if (connection == null) {
-                connection = createConnection();
-            }
-            return connection.getAdmin();
+            return getConnection().getAdmin();
         } catch (Exception ex) {
             log.error(ex, ex.getMessage());
         }
@@ -96,28 +255,104 @@ public class HBaseClientManager {
     }
 
     public HBaseTable getTable(String schema, String tableName) {
+        TableDescriptor hTableDescriptor = getTableDescriptor(schema, tableName);
+        if (hTableDescriptor == null) {
+            return null;
+        } else {
+            return new HBaseTable(schema, hTableDescriptor, tableMetaRegistry);
+        }
+    }
+
+    /**
+     * @return names of all namespaces, empty if we failed to list them
+     */
+    public Set<String> listNamespaces() {
+        try {
+            return namespaceCache.getUnchecked(ALL_NAMESPACES);
+        } catch (Exception ex) {
+            log.error(ex, ex.getMessage());
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * @return names of the tables in namespace without the namespace part, empty if we failed to list them
+     */
+    public List<String> listTableNames(String schema) {
         Objects.requireNonNull(schema, "schema is null");
-        Objects.requireNonNull(tableName, "tableName is null");
-        TableName hTableName = TableName.valueOf(schema.getBytes(), tableName.getBytes());
-        TableDescriptor hTableDescriptor = null;
+        try {
+            return tableNamesCache.getUnchecked(schema);
+        } catch (Exception ex) {
+            log.error(ex, ex.getMessage());
+            return Collections.emptyList();
+        }
+    }
 
-        Admin admin = null;
+    /**
+     * @return descriptor of table, null if the table doesn't exist or we failed to get it
+     */
+    public TableDescriptor getTableDescriptor(String schema, String tableName) {
+        Objects.requireNonNull(schema, "schema is null");
+        Objects.requireNonNull(tableName, "tableName is null");
         try {
-            admin = this.getAdmin();
-            hTableDescriptor = admin.getDescriptor(hTableName);
-        } catch (IOException ex) {
+            return descriptorCache.getUnchecked(TableName.valueOf(schema.getBytes(), tableName.getBytes())).orElse(null);
+        } catch (Exception ex) {
             log.error(ex, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Drop cached metadata of a table, the next access reads it from master again.
+     */
+    public void invalidateTable(String schema, String tableName) {
+        tableNamesCache.invalidate(schema);
+        descriptorCache.invalidate(TableName.valueOf(schema.getBytes(), tableName.getBytes()));
+    }
+
+    private Set<String> loadNamespaces() {
+        Admin admin = getAdminOrThrow();
+        try {
+            return Arrays.stream(admin.listNamespaceDescriptors())
+                    .map(NamespaceDescriptor::getName).collect(ImmutableSet.toImmutableSet());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         } finally {
-            if (admin != null) {
-                this.close(admin);
-            }
+            this.close(admin);
         }
+    }
 
-        if (hTableDescriptor == null) {
-            return null;
-        } else {
-            return new HBaseTable(schema, hTableDescriptor, config);
+    private List<String> loadTableNames(String schema) {
+        Admin admin = getAdminOrThrow();
+        try {
+            return Arrays.stream(admin.listTableNamesByNamespace(schema))
+                    .map(TableName::getQualifierAsString).collect(ImmutableList.toImmutableList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.close(admin);
+        }
+    }
+
+    private Optional<TableDescriptor> loadDescriptor(TableName tableName) {
+        Admin admin = getAdminOrThrow();
+        try {
+            return Optional.of(admin.getDescriptor(tableName));
+        } catch (TableNotFoundException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.close(admin);
+        }
+    }
+
+    private Admin getAdminOrThrow() {
+        Admin admin = getAdmin();
+        if (admin == null) {
+            throw new UncheckedIOException(new IOException("There is no HBase connection to get Admin"));
         }
+        return admin;
     }
 
     public void close(Admin admin) {
@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.connection;
+
+import com.analysys.presto.connector.hbase.meta.HBaseConfig;
+import com.analysys.presto.connector.hbase.utils.Utils;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.log.Logger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.SnapshotProtos;
+import org.apache.hadoop.hbase.snapshot.SnapshotDescriptionUtils;
+import org.apache.hadoop.hbase.snapshot.SnapshotManifest;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_CACHE_EXPIRE_MINUTES;
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_CACHE_MAX_SIZE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshot manifests read by ClientSideRegionScanner queries, with the Hadoop Configuration and FileSystem they use.
+ * A snapshot is shared by all splits of its queries, so its manifest is parsed once per node
+ * instead of once per split, and the Configuration and FileSystem are created once per catalog.
+ */
+public class HBaseSnapshotCache {
+
+    private static final Logger log = Logger.get(HBaseSnapshotCache.class);
+
+    private final HBaseConfig config;
+    private final LoadingCache<String, SnapshotFiles> snapshots;
+    private Configuration configuration;
+    private FileSystem fileSystem;
+
+    @Inject
+    public HBaseSnapshotCache(HBaseConfig config) {
+        this.config = requireNonNull(config, "config is null");
+        this.snapshots = CacheBuilder.newBuilder()
+                .expireAfterAccess(SNAPSHOT_CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                .maximumSize(SNAPSHOT_CACHE_MAX_SIZE)
+                .build(CacheLoader.from(this::load));
+    }
+
+    /**
+     * Configuration is only read by the scanners, so one instance is shared
+     */
+    public synchronized Configuration getConfiguration() {
+        if (configuration == null) {
+            configuration = Utils.getHadoopConf(config.getHbaseZookeeperQuorum(), config.getZookeeperClientPort());
+        }
+        return configuration;
+    }
+
+    public synchronized FileSystem getFileSystem() throws IOException {
+        if (fileSystem == null) {
+            fileSystem = FileSystem.get(getConfiguration());
+        }
+        return fileSystem;
+    }
+
+    public Path getRootDir() {
+        return new Path(config.getHbaseRootDir());
+    }
+
+    /**
+     * @param snapshotName snapshot name
+     * @return table descriptor and regions of snapshot
+     * @throws IOException failed to read the manifest of snapshot
+     */
+    public SnapshotFiles getSnapshot(String snapshotName) throws IOException {
+        try {
+            return snapshots.get(snapshotName);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private SnapshotFiles load(String snapshotName) {
+        long start = System.currentTimeMillis();
+        try {
+            FileSystem fs = getFileSystem();
+            Path snapshotDir = SnapshotDescriptionUtils.getCompletedSnapshotDir(snapshotName, getRootDir());
+            SnapshotProtos.SnapshotDescription snapshotDesc = SnapshotDescriptionUtils.readSnapshotInfo(fs, snapshotDir);
+            SnapshotManifest manifest = SnapshotManifest.open(getConfiguration(), fs, snapshotDir, snapshotDesc);
+            SnapshotFiles snapshotFiles = new SnapshotFiles(manifest.getTableDescriptor(),
+                    ImmutableList.copyOf(Utils.getRegionInfosFromManifest(manifest)));
+            log.info("Read manifest of snapshot " + snapshotName + ", "
+                    + snapshotFiles.getRegions().size() + " regions, used "
+                    + (System.currentTimeMillis() - start) + " mill seconds.");
+            return snapshotFiles;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class SnapshotFiles {
+        private final TableDescriptor tableDescriptor;
+        private final List<RegionInfo> regions;
+
+        SnapshotFiles(TableDescriptor tableDescriptor, List<RegionInfo> regions) {
+            this.tableDescriptor = requireNonNull(tableDescriptor, "tableDescriptor is null");
+            this.regions = requireNonNull(regions, "regions is null");
+        }
+
+        public TableDescriptor getTableDescriptor() {
+            return tableDescriptor;
+        }
+
+        public List<RegionInfo> getRegions() {
+            return regions;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.connection;
+
+import com.analysys.presto.connector.hbase.frame.HBaseConnectorId;
+import com.analysys.presto.connector.hbase.meta.HBaseConfig;
+import com.analysys.presto.connector.hbase.meta.HBaseMetadata;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.log.Logger;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.SnapshotDescription;
+import org.apache.hadoop.hbase.client.SnapshotType;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_GC_INTERVAL_SECONDS;
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_NAME_PREFIX;
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_RETRY_INITIAL_BACKOFF_MS;
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_RETRY_MAX_BACKOFF_MS;
+import static com.analysys.presto.connector.hbase.utils.Constant.SNAPSHOT_THREADS;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshots of ClientSideRegionScanner queries.
+ * A snapshot younger than clientside-snapshot-max-staleness-seconds is reused by the following queries of its table,
+ * concurrent queries of a table wait for the same snapshot instead of flushing the table again.
+ * Snapshots are created asynchronously with exponential backoff between retries, tables in
+ * clientside-skipflush-tablenames get SKIPFLUSH snapshots that don't force a memstore flush.
+ * Queries hold a reference to their snapshot until cleanupQuery, connector created snapshots that
+ * no running query holds are deleted in the background after clientside-snapshot-retention-seconds.
+ * Snapshot names carry the connector id, so only the snapshots of this catalog are ever deleted,
+ * other catalogs and coordinators on the same HBase cluster keep theirs.
+ * Only the coordinator acquires snapshots, so the background deletion runs on the coordinator only.
+ */
+public class HBaseSnapshotManager {
+
+    private static final Logger log = Logger.get(HBaseSnapshotManager.class);
+
+    private final HBaseClientManager clientManager;
+    private final HBaseConfig config;
+    /**
+     * ss-connectorId-, names of the snapshots that this catalog creates and deletes start with it
+     */
+    private final String snapshotNamePrefix;
+
+    /**
+     * Latest snapshot of each table, keyed by schema:table
+     */
+    private final Map<String, Snapshot> latestSnapshots = new HashMap<>();
+    private final Map<String, CompletableFuture<Snapshot>> creatingSnapshots = new HashMap<>();
+    private final Map<String, Integer> referenceCounts = new HashMap<>();
+    private final Map<String, Set<String>> querySnapshots = new HashMap<>();
+
+    /**
+     * Creates snapshots and deletes the expired ones, started by the first acquire, so it runs on the coordinator only
+     */
+    private ScheduledExecutorService executor;
+
+    @Inject
+    public HBaseSnapshotManager(HBaseConnectorId connectorId, HBaseClientManager clientManager, HBaseConfig config) {
+        this.clientManager = requireNonNull(clientManager, "clientManager is null");
+        this.config = requireNonNull(config, "config is null");
+        this.snapshotNamePrefix = SNAPSHOT_NAME_PREFIX + requireNonNull(connectorId, "connectorId is null") + "-";
+    }
+
+    /**
+     * Get a snapshot of table for query, it is referenced until releaseSnapshots of query.
+     * The snapshot is created on a snapshot thread, the caller may locate regions of table while it is created.
+     *
+     * @param queryId    query id
+     * @param schemaName schema name
+     * @param tableName  table name
+     * @return future of snapshot name, the name is null if creating snapshot failed
+     */
+    public CompletableFuture<String> acquireSnapshot(String queryId, String schemaName, String tableName) {
+        String table = schemaName + ":" + tableName;
+        CompletableFuture<Snapshot> future;
+        synchronized (this) {
+            startExecutor();
+            querySnapshots.computeIfAbsent(queryId, id -> new HashSet<>());
+            Snapshot latest = latestSnapshots.get(table);
+            if (latest != null && isFresh(latest)) {
+                log.info("Reuse snapshot " + latest.name + " of table " + table + " for query " + queryId + ".");
+                return CompletableFuture.completedFuture(reference(queryId, latest));
+            }
+            future = creatingSnapshots.get(table);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                creatingSnapshots.put(table, future);
+                String snapshotName = snapshotNamePrefix + schemaName + "." + tableName + "-" + System.nanoTime();
+                SnapshotType type = isSkipFlushTable(schemaName, tableName) ? SnapshotType.SKIPFLUSH : SnapshotType.FLUSH;
+                CompletableFuture<Snapshot> creating = future;
+                executor.execute(() -> createSnapshot(table, snapshotName, type, 0, System.currentTimeMillis(), creating));
+            }
+        }
+        return future.thenApply(snapshot -> {
+            synchronized (this) {
+                // the query may have finished while it was waiting for the snapshot
+                return snapshot == null || !querySnapshots.containsKey(queryId) ? null : reference(queryId, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Release the snapshots referenced by query
+     *
+     * @param queryId query id
+     */
+    public synchronized void releaseSnapshots(String queryId) {
+        Set<String> snapshots = querySnapshots.remove(queryId);
+        if (snapshots == null) {
+            return;
+        }
+        for (String snapshotName : snapshots) {
+            referenceCounts.computeIfPresent(snapshotName, (name, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private String reference(String queryId, Snapshot snapshot) {
+        if (querySnapshots.computeIfAbsent(queryId, id -> new HashSet<>()).add(snapshot.name)) {
+            referenceCounts.merge(snapshot.name, 1, Integer::sum);
+        }
+        return snapshot.name;
+    }
+
+    private boolean isFresh(Snapshot snapshot) {
+        return System.currentTimeMillis() - snapshot.createTime
+                < TimeUnit.SECONDS.toMillis(config.getClientSideSnapshotMaxStalenessSeconds());
+    }
+
+    /**
+     * Try to create snapshot, a failed attempt is retried after an exponential backoff,
+     * which is scheduled instead of sleeping, so other tables' snapshots are not held up.
+     */
+    private void createSnapshot(String table, String snapshotName, SnapshotType type, int attempt, long start,
+                                CompletableFuture<Snapshot> future) {
+        Admin admin = clientManager.getAdmin();
+        try {
+            String[] schemaAndTable = table.split(":", 2);
+            HBaseMetadata.createSnapshot(snapshotName, admin, schemaAndTable[0], schemaAndTable[1], type);
+            log.info("createSnapshot: create " + type + " snapshot " + snapshotName + " finished after "
+                    + attempt + " retries, using " + (System.currentTimeMillis() - start) + " mill seconds.");
+            finishCreating(table, new Snapshot(snapshotName, System.currentTimeMillis()), future);
+        } catch (Exception e) {
+            log.error(e, "E-2-1: create snapshot failed, snapshotName is " + snapshotName
+                    + ", attempt " + attempt + ", track:" + e.getMessage());
+            if (attempt >= config.getCreateSnapshotRetryTimes()) {
+                log.error("E-2-3: after retry, create snapshot " + snapshotName + " still failed.");
+                finishCreating(table, null, future);
+                return;
+            }
+            long backoff = Math.min(SNAPSHOT_RETRY_MAX_BACKOFF_MS,
+                    SNAPSHOT_RETRY_INITIAL_BACKOFF_MS << Math.min(attempt, 20));
+            try {
+                executor.schedule(() -> createSnapshot(table, snapshotName, type, attempt + 1, start, future),
+                        backoff, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                finishCreating(table, null, future);
+            }
+        } finally {
+            if (admin != null) {
+                clientManager.close(admin);
+            }
+        }
+    }
+
+    private void finishCreating(String table, Snapshot snapshot, CompletableFuture<Snapshot> future) {
+        synchronized (this) {
+            if (snapshot != null) {
+                latestSnapshots.put(table, snapshot);
+            }
+            creatingSnapshots.remove(table);
+        }
+        future.complete(snapshot);
+    }
+
+    /**
+     * SKIPFLUSH snapshots don't flush the memstore of the table, rows still in memstore are not read
+     */
+    private boolean isSkipFlushTable(String schemaName, String tableName) {
+        String skipFlushTableNames = config.getClientSideSkipFlushTableNames();
+        if (skipFlushTableNames == null || skipFlushTableNames.trim().isEmpty()) {
+            return false;
+        }
+        List<String> tables = Arrays.asList(skipFlushTableNames.split(","));
+        return tables.contains("*") || tables.contains(schemaName + ":" + tableName);
+    }
+
+    private void startExecutor() {
+        if (executor == null) {
+            executor = Executors.newScheduledThreadPool(SNAPSHOT_THREADS,
+                    new ThreadFactoryBuilder().setNameFormat("hbase-snapshot-%s").setDaemon(true).build());
+            executor.scheduleWithFixedDelay(this::deleteExpiredSnapshots,
+                    SNAPSHOT_GC_INTERVAL_SECONDS, SNAPSHOT_GC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Delete snapshots of this catalog that are older than the retention and not referenced by a running query,
+     * including those left by earlier runs of the coordinator. Snapshots of other catalogs are never listed.
+     */
+    private void deleteExpiredSnapshots() {
+        Admin admin = clientManager.getAdmin();
+        if (admin == null) {
+            return;
+        }
+        try {
+            long retentionMillis = TimeUnit.SECONDS.toMillis(Math.max(config.getClientSideSnapshotRetentionSeconds(),
+                    config.getClientSideSnapshotMaxStalenessSeconds()));
+            List<SnapshotDescription> snapshots = admin.listSnapshots(
+                    Pattern.compile(Pattern.quote(snapshotNamePrefix) + ".*"));
+            for (SnapshotDescription snapshot : snapshots) {
+                if (System.currentTimeMillis() - snapshot.getCreationTime() < retentionMillis) {
+                    continue;
+                }
+                synchronized (this) {
+                    if (referenceCounts.containsKey(snapshot.getName())) {
+                        continue;
+                    }
+                    latestSnapshots.values().removeIf(latest -> latest.name.equals(snapshot.getName()));
+                }
+                try {
+                    admin.deleteSnapshot(snapshot.getName());
+                    log.info("Delete expired snapshot " + snapshot.getName() + ".");
+                } catch (Exception e) {
+                    log.error(e, "Delete expired snapshot " + snapshot.getName() + " failed: " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error(e, e.getMessage());
+        } finally {
+            clientManager.close(admin);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class Snapshot {
+        private final String name;
+        private final long createTime;
+
+        Snapshot(String name, long createTime) {
+            this.name = name;
+            this.createTime = createTime;
+        }
+    }
+}
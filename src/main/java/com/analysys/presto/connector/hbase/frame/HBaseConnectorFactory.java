@@ -21,10 +21,13 @@ import io.prestosql.spi.connector.Connector;
 import io.prestosql.spi.connector.ConnectorContext;
 import io.prestosql.spi.connector.ConnectorFactory;
 import io.prestosql.spi.connector.ConnectorHandleResolver;
+import org.weakref.jmx.guice.MBeanModule;
+import javax.management.MBeanServer;
 import java.util.Map;
 import java.util.Objects;
 
 import static com.analysys.presto.connector.hbase.utils.Constant.CONNECTOR_NAME;
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
 
 /**
  * HBase connector factory
@@ -51,7 +54,11 @@ public class HBaseConnectorFactory implements ConnectorFactory {
         Objects.requireNonNull(requiredConfig, "requiredConfig is null");
         try {
             Bootstrap e = new Bootstrap(
-                    binder -> binder.bind(NodeManager.class).toInstance(context.getNodeManager()),
+                    new MBeanModule(),
+                    binder -> {
+                        binder.bind(NodeManager.class).toInstance(context.getNodeManager());
+                        binder.bind(MBeanServer.class).toInstance(new RebindSafeMBeanServer(getPlatformMBeanServer()));
+                    },
                     new HBaseModule(connectorId, context.getTypeManager()));
 
             Injector injector = e.strictConfig()
@@ -14,12 +14,18 @@
 package com.analysys.presto.connector.hbase.frame;
 
 import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotCache;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotManager;
 import com.analysys.presto.connector.hbase.meta.HBaseMetadata;
+import com.analysys.presto.connector.hbase.meta.HBaseRegionSizes;
 import com.analysys.presto.connector.hbase.meta.HBaseTables;
 import com.analysys.presto.connector.hbase.meta.HBaseConfig;
+import com.analysys.presto.connector.hbase.meta.TableMetaRegistry;
 import com.analysys.presto.connector.hbase.query.HBasePageSinkProvider;
 import com.analysys.presto.connector.hbase.query.HBasePageSourceProvider;
 import com.analysys.presto.connector.hbase.query.HBaseRecordSetProvider;
+import com.analysys.presto.connector.hbase.query.HBaseScanBatchSizer;
+import com.analysys.presto.connector.hbase.query.HBaseStats;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplitManager;
 import com.google.inject.Binder;
 import com.google.inject.Module;
@@ -30,6 +36,9 @@ import io.prestosql.spi.connector.ConnectorPageSourceProvider;
 import io.prestosql.spi.type.TypeManager;
 import java.util.Objects;
 
+import static org.weakref.jmx.ObjectNames.generatedNameOf;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
+
 /**
  * HBase inject module
  * Created by wupeng on 2018/1/19
@@ -50,10 +59,17 @@ class HBaseModule implements Module {
         binder.bind(HBaseConnector.class).in(Scopes.SINGLETON);
         binder.bind(HBaseConnectorId.class).toInstance(new HBaseConnectorId(this.connectorId));
         binder.bind(HBaseMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(TableMetaRegistry.class).in(Scopes.SINGLETON);
         binder.bind(HBaseClientManager.class).in(Scopes.SINGLETON);
+        binder.bind(HBaseSnapshotManager.class).in(Scopes.SINGLETON);
+        binder.bind(HBaseSnapshotCache.class).in(Scopes.SINGLETON);
         binder.bind(HBaseSplitManager.class).in(Scopes.SINGLETON);
         binder.bind(HBaseRecordSetProvider.class).in(Scopes.SINGLETON);
+        binder.bind(HBaseScanBatchSizer.class).in(Scopes.SINGLETON);
+        binder.bind(HBaseStats.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(HBaseStats.class).as(generatedNameOf(HBaseStats.class, this.connectorId));
         binder.bind(HBaseTables.class).in(Scopes.SINGLETON);
+        binder.bind(HBaseRegionSizes.class).in(Scopes.SINGLETON);
         binder.bind(ConnectorPageSourceProvider.class).to(HBasePageSourceProvider.class).in(Scopes.SINGLETON);
         binder.bind(ConnectorPageSinkProvider.class).to(HBasePageSinkProvider.class).in(Scopes.SINGLETON);
         ConfigBinder.configBinder(binder).bindConfig(HBaseConfig.class);
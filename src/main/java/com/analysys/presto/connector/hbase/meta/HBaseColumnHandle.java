@@ -14,12 +14,16 @@
 package com.analysys.presto.connector.hbase.meta;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.ColumnMetadata;
 import io.prestosql.spi.type.Type;
 import java.util.Objects;
 
+import static com.analysys.presto.connector.hbase.utils.Constant.TIMESTAMP_COLUMN_NAME;
+import static io.prestosql.spi.type.TimestampType.TIMESTAMP;
+
 /**
  * HBase column handle
  *
@@ -39,19 +43,35 @@ public final class HBaseColumnHandle implements ColumnHandle {
      */
     private final int ordinalPosition;
 
+    /**
+     * The index of the field of rowKey that a virtual rowKey component column is decoded from,
+     * fields are separated by rowKeySeparator and a seperate salt part is the field 0. -1 for the other columns.
+     */
+    private final int rowKeyField;
+    private final String rowKeySeparator;
+
+    public HBaseColumnHandle(String connectorId, String family, String columnName, Type columnType,
+                             int ordinalPosition, boolean rowKey) {
+        this(connectorId, family, columnName, columnType, ordinalPosition, rowKey, -1, null);
+    }
+
     @JsonCreator
     public HBaseColumnHandle(@JsonProperty("connectorId") String connectorId,
                              @JsonProperty("family") String family,
                              @JsonProperty("columnName") String columnName,
                              @JsonProperty("columnType") Type columnType,
                              @JsonProperty("ordinalPosition") int ordinalPosition,
-                             @JsonProperty("rowKey") boolean rowKey) {
+                             @JsonProperty("rowKey") boolean rowKey,
+                             @JsonProperty("rowKeyField") int rowKeyField,
+                             @JsonProperty("rowKeySeparator") String rowKeySeparator) {
         this.connectorId = Objects.requireNonNull(connectorId, "connectorId is null");
         this.family = Objects.requireNonNull(family, "family is null");
         this.columnName = Objects.requireNonNull(columnName, "columnName is null");
         this.columnType = Objects.requireNonNull(columnType, "columnType is null");
         this.ordinalPosition = ordinalPosition;
         this.rowKey = rowKey;
+        this.rowKeyField = rowKeyField;
+        this.rowKeySeparator = rowKeySeparator;
     }
 
     @JsonProperty
@@ -84,6 +104,41 @@ public final class HBaseColumnHandle implements ColumnHandle {
         return rowKey;
     }
 
+    @JsonProperty
+    public int getRowKeyField() {
+        return rowKeyField;
+    }
+
+    @JsonProperty
+    public String getRowKeySeparator() {
+        return rowKeySeparator;
+    }
+
+    /**
+     * @return true if this column is not stored as cells but decoded from a field of rowKey
+     */
+    @JsonIgnore
+    public boolean isRowKeyComponent() {
+        return rowKeyField >= 0;
+    }
+
+    /**
+     * @return true if this is the hidden column of the timestamp of cells, it has no cells either
+     */
+    @JsonIgnore
+    public boolean isTimestamp() {
+        return family.isEmpty() && TIMESTAMP_COLUMN_NAME.equals(columnName);
+    }
+
+    /**
+     * @param connectorId     connector id
+     * @param ordinalPosition index of the column, after the columns of table
+     * @return handle of the hidden $timestamp column
+     */
+    public static HBaseColumnHandle timestampColumn(String connectorId, int ordinalPosition) {
+        return new HBaseColumnHandle(connectorId, "", TIMESTAMP_COLUMN_NAME, TIMESTAMP, ordinalPosition, false);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(this.connectorId, this.family, this.columnName);
@@ -104,7 +159,7 @@ public final class HBaseColumnHandle implements ColumnHandle {
     }
 
     ColumnMetadata toColumnMetadata() {
-        return new ColumnMetadata(columnName, columnType);
+        return new ColumnMetadata(columnName, columnType, null, isTimestamp());
     }
 
     @Override
@@ -115,6 +170,7 @@ public final class HBaseColumnHandle implements ColumnHandle {
                 ", columnName='" + columnName + '\'' +
                 ", columnType=" + columnType +
                 ", rowKey=" + rowKey +
+                ", rowKeyField=" + rowKeyField +
                 ", ordinalPosition=" + ordinalPosition +
                 '}';
     }
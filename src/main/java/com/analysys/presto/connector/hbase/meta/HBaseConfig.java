@@ -16,6 +16,7 @@ package com.analysys.presto.connector.hbase.meta;
 import io.airlift.configuration.Config;
 import io.airlift.log.Logger;
 import org.apache.commons.lang.StringUtils;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.net.InetAddress;
 import java.util.Arrays;
@@ -77,6 +78,98 @@ public class HBaseConfig {
      */
     private boolean seperateSaltPart = false;
 
+    /**
+     * Fetch Results of scan on a dedicated thread while driver threads are decoding
+     */
+    private boolean enableScanPrefetch = false;
+
+    /**
+     * Rows of a batch handed from the fetch thread to the driver thread
+     */
+    private int scanPrefetchBatchRows = 1000;
+
+    /**
+     * Batches that can be buffered for each split, 2 means double buffering
+     */
+    private int scanPrefetchQueueSize = 2;
+
+    /**
+     * Threads of a worker that fetch Results for prefetched scans
+     */
+    private int scanPrefetchThreads = 16;
+
+    /**
+     * Max bytes of Results that a scan can buffer for each split, used as maxResultSize of scan
+     * and to size how many rows are fetched by each RPC
+     */
+    private long scanMemoryBudget = 16 * 1024 * 1024;
+
+    private int scanMinCaching = 100;
+
+    private int scanMaxCaching = 100000;
+
+    /**
+     * Observed bytes per row of a table and projection is forgotten when no scan used it for this long
+     */
+    private int scanRowSizeTtlSeconds = 300;
+
+    /**
+     * Gets issued by one multi get of batch get
+     */
+    private int batchGetChunkSize = 1000;
+
+    /**
+     * Multi gets that a batch get split can have in flight
+     */
+    private int batchGetMaxInFlightChunks = 4;
+
+    /**
+     * Long-lived HBase connections shared by all splits, sinks and deletes of this catalog
+     */
+    private int connectionPoolSize = 2;
+
+    /**
+     * Value of hbase.client.ipc.pool.size, sockets that a connection opens to each region server
+     */
+    private int clientIpcPoolSize = 4;
+
+    /**
+     * Namespaces, table names and table descriptors are cached this long on the coordinator
+     */
+    private int metadataCacheTtlSeconds = 60;
+
+    /**
+     * Cached namespaces, table names and table descriptors are reloaded in the background this long after loaded
+     */
+    private int metadataCacheRefreshSeconds = 10;
+
+    private int metadataCacheMaxSize = 10000;
+
+    /**
+     * Region sizes of a table used by table statistics and split sizing are cached this long on the coordinator
+     */
+    private int tableStatisticsTtlSeconds = 300;
+
+    /**
+     * Regions larger than this are scanned by several splits, each reading about this many MB
+     */
+    private int targetSplitSizeMb = 1024;
+
+    /**
+     * A snapshot younger than this is reused by the following ClientSide queries of its table, 0 means never reuse
+     */
+    private int clientSideSnapshotMaxStalenessSeconds = 0;
+
+    /**
+     * Connector created snapshots older than this are deleted once no running query uses them
+     */
+    private int clientSideSnapshotRetentionSeconds = 600;
+
+    /**
+     * Tables whose ClientSide snapshots skip the memstore flush, schema:table separated by commas, * means all
+     */
+    private String clientSideSkipFlushTableNames;
+
     @NotNull
     public String getMetaDir() {
         return metaDir;
@@ -229,6 +322,204 @@ public class HBaseConfig {
         this.seperateSaltPart = seperateSaltPart;
     }
 
+    public boolean isEnableScanPrefetch() {
+        return enableScanPrefetch;
+    }
+
+    @Config("enable-scan-prefetch")
+    public void setEnableScanPrefetch(boolean enableScanPrefetch) {
+        this.enableScanPrefetch = enableScanPrefetch;
+    }
+
+    @Min(1)
+    public int getScanPrefetchBatchRows() {
+        return scanPrefetchBatchRows;
+    }
+
+    @Config("scan-prefetch-batch-rows")
+    public void setScanPrefetchBatchRows(int scanPrefetchBatchRows) {
+        this.scanPrefetchBatchRows = scanPrefetchBatchRows;
+    }
+
+    @Min(1)
+    public int getScanPrefetchQueueSize() {
+        return scanPrefetchQueueSize;
+    }
+
+    @Config("scan-prefetch-queue-size")
+    public void setScanPrefetchQueueSize(int scanPrefetchQueueSize) {
+        this.scanPrefetchQueueSize = scanPrefetchQueueSize;
+    }
+
+    @Min(1)
+    public int getScanPrefetchThreads() {
+        return scanPrefetchThreads;
+    }
+
+    @Config("scan-prefetch-threads")
+    public void setScanPrefetchThreads(int scanPrefetchThreads) {
+        this.scanPrefetchThreads = scanPrefetchThreads;
+    }
+
+    @Min(1)
+    public long getScanMemoryBudget() {
+        return scanMemoryBudget;
+    }
+
+    @Config("scan-memory-budget-bytes")
+    public void setScanMemoryBudget(long scanMemoryBudget) {
+        this.scanMemoryBudget = scanMemoryBudget;
+    }
+
+    @Min(1)
+    public int getScanMinCaching() {
+        return scanMinCaching;
+    }
+
+    @Config("scan-min-caching")
+    public void setScanMinCaching(int scanMinCaching) {
+        this.scanMinCaching = scanMinCaching;
+    }
+
+    @Min(1)
+    public int getScanMaxCaching() {
+        return scanMaxCaching;
+    }
+
+    @Config("scan-max-caching")
+    public void setScanMaxCaching(int scanMaxCaching) {
+        this.scanMaxCaching = scanMaxCaching;
+    }
+
+    @Min(1)
+    public int getScanRowSizeTtlSeconds() {
+        return scanRowSizeTtlSeconds;
+    }
+
+    @Config("scan-row-size-ttl-seconds")
+    public void setScanRowSizeTtlSeconds(int scanRowSizeTtlSeconds) {
+        this.scanRowSizeTtlSeconds = scanRowSizeTtlSeconds;
+    }
+
+    @Min(1)
+    public int getBatchGetChunkSize() {
+        return batchGetChunkSize;
+    }
+
+    @Config("batch-get-chunk-size")
+    public void setBatchGetChunkSize(int batchGetChunkSize) {
+        this.batchGetChunkSize = batchGetChunkSize;
+    }
+
+    @Min(1)
+    public int getBatchGetMaxInFlightChunks() {
+        return batchGetMaxInFlightChunks;
+    }
+
+    @Config("batch-get-max-in-flight-chunks")
+    public void setBatchGetMaxInFlightChunks(int batchGetMaxInFlightChunks) {
+        this.batchGetMaxInFlightChunks = batchGetMaxInFlightChunks;
+    }
+
+    @Min(1)
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    @Config("connection-pool-size")
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    @Min(1)
+    public int getClientIpcPoolSize() {
+        return clientIpcPoolSize;
+    }
+
+    @Config("client-ipc-pool-size")
+    public void setClientIpcPoolSize(int clientIpcPoolSize) {
+        this.clientIpcPoolSize = clientIpcPoolSize;
+    }
+
+    @Min(1)
+    public int getMetadataCacheTtlSeconds() {
+        return metadataCacheTtlSeconds;
+    }
+
+    @Config("metadata-cache-ttl-seconds")
+    public void setMetadataCacheTtlSeconds(int metadataCacheTtlSeconds) {
+        this.metadataCacheTtlSeconds = metadataCacheTtlSeconds;
+    }
+
+    @Min(1)
+    public int getMetadataCacheRefreshSeconds() {
+        return metadataCacheRefreshSeconds;
+    }
+
+    @Config("metadata-cache-refresh-seconds")
+    public void setMetadataCacheRefreshSeconds(int metadataCacheRefreshSeconds) {
+        this.metadataCacheRefreshSeconds = metadataCacheRefreshSeconds;
+    }
+
+    @Min(1)
+    public int getMetadataCacheMaxSize() {
+        return metadataCacheMaxSize;
+    }
+
+    @Config("metadata-cache-max-size")
+    public void setMetadataCacheMaxSize(int metadataCacheMaxSize) {
+        this.metadataCacheMaxSize = metadataCacheMaxSize;
+    }
+
+    @Min(1)
+    public int getTableStatisticsTtlSeconds() {
+        return tableStatisticsTtlSeconds;
+    }
+
+    @Config("table-statistics-ttl-seconds")
+    public void setTableStatisticsTtlSeconds(int tableStatisticsTtlSeconds) {
+        this.tableStatisticsTtlSeconds = tableStatisticsTtlSeconds;
+    }
+
+    @Min(1)
+    public int getTargetSplitSizeMb() {
+        return targetSplitSizeMb;
+    }
+
+    @Config("target-split-size-mb")
+    public void setTargetSplitSizeMb(int targetSplitSizeMb) {
+        this.targetSplitSizeMb = targetSplitSizeMb;
+    }
+
+    @Min(0)
+    public int getClientSideSnapshotMaxStalenessSeconds() {
+        return clientSideSnapshotMaxStalenessSeconds;
+    }
+
+    @Config("clientside-snapshot-max-staleness-seconds")
+    public void setClientSideSnapshotMaxStalenessSeconds(int clientSideSnapshotMaxStalenessSeconds) {
+        this.clientSideSnapshotMaxStalenessSeconds = clientSideSnapshotMaxStalenessSeconds;
+    }
+
+    @Min(1)
+    public int getClientSideSnapshotRetentionSeconds() {
+        return clientSideSnapshotRetentionSeconds;
+    }
+
+    @Config("clientside-snapshot-retention-seconds")
+    public void setClientSideSnapshotRetentionSeconds(int clientSideSnapshotRetentionSeconds) {
+        this.clientSideSnapshotRetentionSeconds = clientSideSnapshotRetentionSeconds;
+    }
+
+    public String getClientSideSkipFlushTableNames() {
+        return clientSideSkipFlushTableNames;
+    }
+
+    @Config("clientside-skipflush-tablenames")
+    public void setClientSideSkipFlushTableNames(String clientSideSkipFlushTableNames) {
+        this.clientSideSkipFlushTableNames = clientSideSkipFlushTableNames;
+    }
+
     @Override
     public String toString() {
         return "HBaseConfig{" +
@@ -241,6 +532,8 @@ public class HBaseConfig {
                 ", randomScheduleRedundantSplit=" + randomScheduleRedundantSplit +
                 ", metaDir='" + metaDir + '\'' +
                 ", createSnapshotRetryTimes='" + createSnapshotRetryTimes + '\'' +
+                ", enableScanPrefetch=" + enableScanPrefetch +
+                ", scanMemoryBudget=" + scanMemoryBudget +
                 '}';
     }
 
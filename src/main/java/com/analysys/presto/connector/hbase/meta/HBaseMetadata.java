@@ -14,6 +14,7 @@
 package com.analysys.presto.connector.hbase.meta;
 
 import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotManager;
 import com.analysys.presto.connector.hbase.frame.HBaseConnectorId;
 import com.analysys.presto.connector.hbase.utils.Constant;
 import com.analysys.presto.connector.hbase.utils.Utils;
@@ -22,8 +23,12 @@ import com.google.common.collect.ImmutableMap;
 import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
 import io.prestosql.spi.connector.*;
+import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.TupleDomain;
+import io.prestosql.spi.statistics.ColumnStatistics;
 import io.prestosql.spi.statistics.ComputedStatistics;
+import io.prestosql.spi.statistics.Estimate;
+import io.prestosql.spi.statistics.TableStatistics;
 import io.prestosql.spi.type.Type;
 import io.prestosql.spi.type.VarcharType;
 import org.apache.hadoop.hbase.TableName;
@@ -33,10 +38,14 @@ import org.apache.hadoop.hbase.client.SnapshotDescription;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.analysys.presto.connector.hbase.utils.Constant.CONNECTOR_NAME;
+import static com.analysys.presto.connector.hbase.utils.Constant.TIMESTAMP_COLUMN_COMMENT;
+import static com.analysys.presto.connector.hbase.utils.Constant.TIMESTAMP_COLUMN_NAME;
 import static com.analysys.presto.connector.hbase.utils.Types.checkType;
 import static com.google.common.base.Preconditions.checkArgument;
+import static io.prestosql.spi.type.TimestampType.TIMESTAMP;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -51,12 +60,28 @@ public class HBaseMetadata implements ConnectorMetadata {
     private final HBaseConnectorId connectorId;
     private final HBaseTables hbaseTables;
     private final HBaseClientManager hbaseClientManager;
+    private final TableMetaRegistry tableMetaRegistry;
+    private final HBaseRegionSizes regionSizes;
+    private final HBaseSnapshotManager snapshotManager;
 
     @Inject
-    public HBaseMetadata(HBaseConnectorId connectorId, HBaseTables hbaseTables, HBaseClientManager hbaseClientManager) {
+    public HBaseMetadata(HBaseConnectorId connectorId, HBaseTables hbaseTables, HBaseClientManager hbaseClientManager,
+                         TableMetaRegistry tableMetaRegistry, HBaseRegionSizes regionSizes,
+                         HBaseSnapshotManager snapshotManager) {
         this.connectorId = connectorId;
         this.hbaseTables = requireNonNull(hbaseTables, "hbaseTables is null");
         this.hbaseClientManager = hbaseClientManager;
+        this.tableMetaRegistry = requireNonNull(tableMetaRegistry, "tableMetaRegistry is null");
+        this.regionSizes = requireNonNull(regionSizes, "regionSizes is null");
+        this.snapshotManager = requireNonNull(snapshotManager, "snapshotManager is null");
+    }
+
+    /**
+     * Snapshots of ClientSide queries are referenced until the query finishes, no worker reads them after that
+     */
+    @Override
+    public void cleanupQuery(ConnectorSession session) {
+        snapshotManager.releaseSnapshots(session.getQueryId());
     }
 
     @Override
@@ -67,18 +92,7 @@ public class HBaseMetadata implements ConnectorMetadata {
     @Override
     public ConnectorTableHandle getTableHandle(ConnectorSession connectorSession, SchemaTableName schemaTableName) {
         requireNonNull(schemaTableName, "schemaTableName is null");
-        Admin admin = null;
-        ConnectorTableHandle connectorTableHandle;
-        try {
-            admin = hbaseClientManager.getAdmin();
-            connectorTableHandle = hbaseTables.getTables(
-                    admin, schemaTableName.getSchemaName()).get(schemaTableName);
-        } finally {
-            if (admin != null) {
-                hbaseClientManager.close(admin);
-            }
-        }
-        return connectorTableHandle;
+        return hbaseTables.getTable(schemaTableName);
     }
 
     @Override
@@ -95,7 +109,14 @@ public class HBaseMetadata implements ConnectorMetadata {
             return null;
         } else {
             HBaseTable table = hbaseClientManager.getTable(tableName.getSchemaName(), tableName.getTableName());
-            return table == null ? null : new ConnectorTableMetadata(tableName, table.getColumnsMetadata());
+            if (table == null) {
+                return null;
+            }
+            List<ColumnMetadata> columns = new ArrayList<>(table.getColumnsMetadata());
+            if (!hasColumn(table, TIMESTAMP_COLUMN_NAME)) {
+                columns.add(new ColumnMetadata(TIMESTAMP_COLUMN_NAME, TIMESTAMP, TIMESTAMP_COLUMN_COMMENT, true));
+            }
+            return new ConnectorTableMetadata(tableName, columns);
         }
     }
 
@@ -105,16 +126,7 @@ public class HBaseMetadata implements ConnectorMetadata {
 
     @Override
     public List<SchemaTableName> listTables(ConnectorSession connectorSession, Optional<String> schemaName) {
-        Admin admin = hbaseClientManager.getAdmin();
-        List<SchemaTableName> schemaTableNames;
-        try {
-            schemaTableNames = new ArrayList<>(hbaseTables.getTables(admin, schemaName.orElse("")).keySet());
-        } finally {
-            if (admin != null) {
-                hbaseClientManager.close(admin);
-            }
-        }
-        return schemaTableNames;
+        return new ArrayList<>(hbaseTables.getTables(schemaName.orElse("")).keySet());
     }
 
     @Override
@@ -126,19 +138,35 @@ public class HBaseMetadata implements ConnectorMetadata {
         if (table == null) {
             throw new TableNotFoundException(hBaseTableHandle.getSchemaTableName());
         } else {
+            TableMetaInfo tableMetaInfo = tableMetaRegistry.getTableMetaInfo(
+                    hBaseTableHandle.getSchemaTableName().getSchemaName(),
+                    hBaseTableHandle.getSchemaTableName().getTableName());
+            // a seperate salt part is the first field of rowKey, the components follow it
+            int saltFields = hbaseClientManager.getConfig().isSeperateSaltPart() ? 1 : 0;
             ImmutableMap.Builder<String, ColumnHandle> columnHandles = ImmutableMap.builder();
             int index = 0;
             for (Iterator itr = table.getColumnsMetadata().iterator(); itr.hasNext(); ++index) {
                 HBaseColumnMetadata column = (HBaseColumnMetadata) itr.next();
+                int component = tableMetaInfo == null ? -1 : tableMetaInfo.getRowKeyComponentIndex(column.getName());
                 columnHandles.put(column.getName(),
                         new HBaseColumnHandle(
                                 connectorId.getId(), column.getFamily(), column.getName(),
-                                column.getType(), index, column.isRowKey()));
+                                column.getType(), index, column.isRowKey(),
+                                component < 0 ? -1 : component + saltFields,
+                                component < 0 ? null : tableMetaInfo.getRowKeySeparator()));
+            }
+            // cell timestamps can be selected and filtered through a hidden column
+            if (!hasColumn(table, TIMESTAMP_COLUMN_NAME)) {
+                columnHandles.put(TIMESTAMP_COLUMN_NAME, HBaseColumnHandle.timestampColumn(connectorId.getId(), index));
             }
             return columnHandles.build();
         }
     }
 
+    private static boolean hasColumn(HBaseTable table, String columnName) {
+        return table.getColumnsMetadata().stream().anyMatch(column -> column.getName().equals(columnName));
+    }
+
     @Override
     public ColumnMetadata getColumnMetadata(ConnectorSession connectorSession,
                                             ConnectorTableHandle connectorTableHandle,
@@ -189,6 +217,24 @@ public class HBaseMetadata implements ConnectorMetadata {
                                       Admin admin,
                                       String schemaName,
                                       String tableName) throws IOException {
+        createSnapshot(snapshotName, admin, schemaName, tableName, SnapshotType.FLUSH);
+    }
+
+    /**
+     * create snapshot
+     *
+     * @param snapshotName snapshot name
+     * @param admin        admin
+     * @param schemaName   schema name
+     * @param tableName    table name
+     * @param type         FLUSH, or SKIPFLUSH to leave the memstore of table alone
+     * @throws IOException io exception
+     */
+    public static void createSnapshot(String snapshotName,
+                                      Admin admin,
+                                      String schemaName,
+                                      String tableName,
+                                      SnapshotType type) throws IOException {
         long start = System.currentTimeMillis();
         String fullTableName;
         if (Constant.HBASE_NAMESPACE_DEFAULT.equals(schemaName)
@@ -197,7 +243,7 @@ public class HBaseMetadata implements ConnectorMetadata {
         } else {
             fullTableName = schemaName + ":" + tableName;
         }
-        SnapshotDescription snapshot = new SnapshotDescription(snapshotName, TableName.valueOf(fullTableName), SnapshotType.FLUSH);
+        SnapshotDescription snapshot = new SnapshotDescription(snapshotName, TableName.valueOf(fullTableName), type);
         admin.snapshot(snapshot);
         log.info("createSnapshot: create snapshot " + snapshotName
                 + " used " + (System.currentTimeMillis() - start) + " mill seconds.");
@@ -210,8 +256,7 @@ public class HBaseMetadata implements ConnectorMetadata {
         String schemaName = tableHandle.getSchemaTableName().getSchemaName();
         String tableName = tableHandle.getSchemaTableName().getTableName();
         try {
-            TableMetaInfo tableMetaInfo = Utils.getTableMetaInfoFromJson(schemaName, tableName,
-                    this.hbaseClientManager.getConfig().getMetaDir());
+            TableMetaInfo tableMetaInfo = tableMetaRegistry.getTableMetaInfo(schemaName, tableName);
             requireNonNull(tableMetaInfo,
                     String.format("The metadata of table %s.%s is null", schemaName, tableName));
 
@@ -269,8 +314,7 @@ public class HBaseMetadata implements ConnectorMetadata {
         String schemaName = hth.getSchemaTableName().getSchemaName();
         String tableName = hth.getSchemaTableName().getTableName();
 
-        TableMetaInfo tableMetaInfo = Utils.getTableMetaInfoFromJson(schemaName, tableName,
-                this.hbaseClientManager.getConfig().getMetaDir());
+        TableMetaInfo tableMetaInfo = tableMetaRegistry.getTableMetaInfo(schemaName, tableName);
         requireNonNull(tableMetaInfo, String.format("Table %s.%s has no metadata, please check .json file under %s",
                 schemaName, tableName, hbaseClientManager.getConfig().getMetaDir() + "/" + schemaName));
 
@@ -303,6 +347,50 @@ public class HBaseMetadata implements ConnectorMetadata {
     }
     // --------------- support delete function end ---------------
 
+    /**
+     * HBase doesn't count rows, row count is estimated from the sizes of the regions that rowKey constraint can read,
+     * divided by the estimated size of a row. The data size of each column is its share of those bytes,
+     * by the estimated size of its cells.
+     */
+    @Override
+    public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle,
+                                              Constraint constraint) {
+        HBaseTableHandle handle = (HBaseTableHandle) tableHandle;
+        SchemaTableName schemaTableName = handle.getSchemaTableName();
+        TupleDomain<ColumnHandle> domain = handle.getConstraint().intersect(constraint.getSummary());
+        if (domain.isNone()) {
+            return TableStatistics.builder().setRowCount(Estimate.zero()).build();
+        }
+        Optional<List<HBaseRegionSizes.RegionSize>> regions =
+                regionSizes.getRegionSizes(schemaTableName.getSchemaName(), schemaTableName.getTableName());
+        if (!regions.isPresent()) {
+            return TableStatistics.empty();
+        }
+
+        List<HBaseColumnHandle> columns = getColumnHandles(session, tableHandle).values().stream()
+                .map(HBaseColumnHandle.class::cast).collect(Collectors.toList());
+        Optional<Domain> rowKeyDomain = domain.getDomains().flatMap(domains -> domains.entrySet().stream()
+                .filter(entry -> ((HBaseColumnHandle) entry.getKey()).isRowKey())
+                .map(Map.Entry::getValue).findFirst());
+
+        long bytes = HBaseRegionSizes.getSelectedBytes(regions.get(), rowKeyDomain);
+        double rowCount = (double) bytes / Utils.estimateBytesPerRow(columns);
+        // Batch get reads at most one row per rowKey
+        if (rowKeyDomain.isPresent() && rowKeyDomain.get().getValues().isDiscreteSet()) {
+            rowCount = Math.min(rowCount, rowKeyDomain.get().getValues().getDiscreteSet().size());
+        }
+        TableStatistics.Builder statistics = TableStatistics.builder().setRowCount(Estimate.of(rowCount));
+        for (HBaseColumnHandle column : columns) {
+            long cellBytes = Utils.estimateCellBytes(column);
+            // rowKey, its components and $timestamp have no cells
+            if (cellBytes > 0) {
+                statistics.setColumnStatistics(column, ColumnStatistics.builder()
+                        .setDataSize(Estimate.of(rowCount * cellBytes)).build());
+            }
+        }
+        return statistics.build();
+    }
+
     @Override
     public ConnectorTableProperties getTableProperties(ConnectorSession session, ConnectorTableHandle table) {
         return new ConnectorTableProperties();
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.meta;
+
+import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+import io.airlift.slice.Slice;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Range;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.Size;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.util.Bytes;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.REGION_SIZES_CACHE_MAX_SIZE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Size of each region of a table from the RegionMetrics of region servers,
+ * for the table statistics and the splitting of large regions.
+ * Only the region servers hosting the table are asked, sizes are cached for table-statistics-ttl-seconds.
+ */
+public class HBaseRegionSizes {
+
+    private static final Logger log = Logger.get(HBaseRegionSizes.class);
+
+    private final HBaseClientManager clientManager;
+    private final LoadingCache<TableName, List<RegionSize>> regionSizes;
+
+    @Inject
+    public HBaseRegionSizes(HBaseClientManager clientManager, HBaseConfig config) {
+        this.clientManager = requireNonNull(clientManager, "clientManager is null");
+        this.regionSizes = CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getTableStatisticsTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(REGION_SIZES_CACHE_MAX_SIZE)
+                .build(CacheLoader.from(this::load));
+    }
+
+    /**
+     * @return sizes of the regions of table, empty if we failed to get them
+     */
+    public Optional<List<RegionSize>> getRegionSizes(String schema, String tableName) {
+        try {
+            return Optional.of(regionSizes.getUnchecked(TableName.valueOf(schema + ":" + tableName)));
+        } catch (Exception e) {
+            log.error(e, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private List<RegionSize> load(TableName tableName) {
+        Admin admin = clientManager.getAdmin();
+        if (admin == null) {
+            throw new UncheckedIOException(new IOException("There is no HBase connection to get region metrics"));
+        }
+        try (RegionLocator locator = clientManager.getConnection().getRegionLocator(tableName)) {
+            List<HRegionLocation> locations = locator.getAllRegionLocations();
+            Set<ServerName> servers = locations.stream().map(HRegionLocation::getServerName)
+                    .filter(Objects::nonNull).collect(Collectors.toSet());
+            Map<String, RegionMetrics> metrics = new HashMap<>();
+            for (ServerName server : servers) {
+                for (RegionMetrics regionMetrics : admin.getRegionMetrics(server, tableName)) {
+                    metrics.put(Bytes.toStringBinary(regionMetrics.getRegionName()), regionMetrics);
+                }
+            }
+
+            ImmutableList.Builder<RegionSize> sizes = ImmutableList.builder();
+            for (HRegionLocation location : locations) {
+                RegionInfo region = location.getRegion();
+                RegionMetrics regionMetrics = metrics.get(Bytes.toStringBinary(region.getRegionName()));
+                // Rows of memstore are not in store files yet
+                long bytes = regionMetrics == null ? 0L
+                        : (long) (regionMetrics.getUncompressedStoreFileSize().get(Size.Unit.BYTE)
+                        + regionMetrics.getMemStoreSize().get(Size.Unit.BYTE));
+                sizes.add(new RegionSize(region.getStartKey(), region.getEndKey(), bytes));
+            }
+            return sizes.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            clientManager.close(admin);
+        }
+    }
+
+    /**
+     * Bytes of the regions that a rowKey domain can read, a region counts as a whole if any range of domain touches it.
+     *
+     * @param regions       region sizes
+     * @param rowKeyDomain  domain of rowKey column, empty if rowKey is not constrained
+     * @return selected bytes
+     */
+    public static long getSelectedBytes(List<RegionSize> regions, Optional<Domain> rowKeyDomain) {
+        List<Range> ranges = null;
+        if (rowKeyDomain.isPresent() && !rowKeyDomain.get().isAll()) {
+            try {
+                ranges = rowKeyDomain.get().getValues().getRanges().getOrderedRanges();
+            } catch (UnsupportedOperationException e) {
+                // not a range set, every region may be read
+            }
+        }
+
+        long bytes = 0L;
+        for (RegionSize region : regions) {
+            if (ranges == null || ranges.stream().anyMatch(range -> region.overlaps(range))) {
+                bytes += region.getBytes();
+            }
+        }
+        return bytes;
+    }
+
+    public static class RegionSize {
+        private final byte[] startKey;
+        private final byte[] endKey;
+        private final long bytes;
+
+        public RegionSize(byte[] startKey, byte[] endKey, long bytes) {
+            this.startKey = requireNonNull(startKey, "startKey is null");
+            this.endKey = requireNonNull(endKey, "endKey is null");
+            this.bytes = bytes;
+        }
+
+        public byte[] getStartKey() {
+            return startKey;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Region is [startKey, endKey), an empty endKey means the last region.
+         * A bound which is not a Slice is not compared with the keys, it is taken as unbounded.
+         */
+        boolean overlaps(Range range) {
+            byte[] low = range.getLow().isLowerUnbounded() ? null : toBytes(range.getLow().getValue());
+            if (low != null && endKey.length > 0 && Bytes.compareTo(low, endKey) >= 0) {
+                return false;
+            }
+            byte[] high = range.getHigh().isUpperUnbounded() ? null : toBytes(range.getHigh().getValue());
+            return high == null || Bytes.compareTo(high, startKey) >= 0;
+        }
+
+        /**
+         * @return bytes of a rowKey bound, null if value is not a Slice
+         */
+        private static byte[] toBytes(Object value) {
+            return value instanceof Slice ? ((Slice) value).getBytes() : null;
+        }
+    }
+}
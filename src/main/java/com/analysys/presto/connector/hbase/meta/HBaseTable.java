@@ -13,8 +13,6 @@
  */
 package com.analysys.presto.connector.hbase.meta;
 
-import com.analysys.presto.connector.hbase.utils.Utils;
-import com.google.common.collect.ImmutableList;
 import io.airlift.log.Logger;
 import io.prestosql.spi.connector.ColumnMetadata;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -34,15 +32,15 @@ public class HBaseTable {
     private final TableDescriptor hTableDescriptor;
     private final List<ColumnMetadata> columnsMetadata;
 
-    public HBaseTable(String schemaName, TableDescriptor tabDesc, HBaseConfig config) {
+    public HBaseTable(String schemaName, TableDescriptor tabDesc, TableMetaRegistry tableMetaRegistry) {
         this.hTableDescriptor = Objects.requireNonNull(tabDesc, "tabDesc is null");
         Objects.requireNonNull(schemaName, "schemaName is null");
-        ImmutableList<ColumnMetadata> tableMeta = null;
+        List<ColumnMetadata> tableMeta = null;
         try {
             String tableNameAsString = tabDesc.getTableName().getNameAsString();
             String tableName = tableNameAsString != null && tableNameAsString.contains(":") ?
                     tableNameAsString.split(":")[1] : tableNameAsString;
-            tableMeta = Utils.getColumnMetaFromJson(schemaName, tableName, config.getMetaDir());
+            tableMeta = tableMetaRegistry.getColumnsMetadata(schemaName, tableName);
             if (tableMeta == null || tableMeta.size() <= 0) {
                 logger.error("OOPS! Table meta info cannot be NULL, table name=" + tableNameAsString);
                 throw new Exception("Cannot find meta info of table " + tableNameAsString + ".");
@@ -18,13 +18,11 @@ import com.google.common.collect.ImmutableMap;
 import io.airlift.log.Logger;
 import io.prestosql.spi.connector.SchemaTableName;
 import io.prestosql.spi.predicate.TupleDomain;
-import org.apache.hadoop.hbase.NamespaceDescriptor;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
-import org.apache.hadoop.hbase.client.TableDescriptor;
 import javax.inject.Inject;
-import java.io.IOException;
-import java.util.*;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * HBase tables
@@ -43,56 +41,28 @@ public class HBaseTables {
         this.hbaseClientManager = hbaseClientManager;
     }
 
-    Map<SchemaTableName, HBaseTableHandle> getTables(Admin admin, String schema) {
-        Map<SchemaTableName, HBaseTableHandle> tables;
-        try {
-            ImmutableMap.Builder<SchemaTableName, HBaseTableHandle> tablesBuilder = ImmutableMap.builder();
-            List<TableDescriptor> descriptors = admin.listTableDescriptorsByNamespace(schema.getBytes());
-            for (TableDescriptor table : descriptors) {
-                // If the target table is in the other namespace, table.getNameAsString() will return
-                // value like 'namespace1:tableName1', so we have to remove the unnecessary namespace.
-                String tableName = table.getTableName().getNameAsString();
-                if (tableName != null && tableName.contains(":")) {
-                    tableName = tableName.split(":")[1];
-                }
-
-                Objects.requireNonNull(tableName, "tableName cannot be null!");
-                SchemaTableName schemaTableName = new SchemaTableName(schema, tableName);
-
-                tablesBuilder.put(schemaTableName, new HBaseTableHandle(schemaTableName, TupleDomain.all()));
-            }
-            tables = tablesBuilder.build();
-            return tables;
-        } catch (Exception ex) {
-            logger.error(ex, ex.getMessage());
+    Map<SchemaTableName, HBaseTableHandle> getTables(String schema) {
+        ImmutableMap.Builder<SchemaTableName, HBaseTableHandle> tablesBuilder = ImmutableMap.builder();
+        for (String tableName : hbaseClientManager.listTableNames(schema)) {
+            SchemaTableName schemaTableName = new SchemaTableName(schema, tableName);
+            tablesBuilder.put(schemaTableName, new HBaseTableHandle(schemaTableName, TupleDomain.all()));
         }
-        return null;
+        return tablesBuilder.build();
     }
 
-    Set<String> getSchemaNames() {
-        NamespaceDescriptor[] namespaceDescriptors = new NamespaceDescriptor[0];
-        Admin admin = null;
-        try {
-            admin = hbaseClientManager.getAdmin();
-            namespaceDescriptors = admin.listNamespaceDescriptors();
-        } catch (IOException e) {
-            logger.error(e, e.getMessage());
-        } finally {
-            if (admin != null) {
-                hbaseClientManager.close(admin);
-            }
-        }
-
-        HashSet<String> set = new HashSet<>();
-        NamespaceDescriptor[] temp = namespaceDescriptors;
-        int namespaceDescriptorLength = namespaceDescriptors.length;
-
-        for (int i = 0; i < namespaceDescriptorLength; ++i) {
-            NamespaceDescriptor namespaceDescriptor = temp[i];
-            set.add(namespaceDescriptor.getName());
+    /**
+     * @return handle of table, null if the table doesn't exist
+     */
+    HBaseTableHandle getTable(SchemaTableName schemaTableName) {
+        if (!hbaseClientManager.listTableNames(schemaTableName.getSchemaName())
+                .contains(schemaTableName.getTableName())) {
+            return null;
         }
+        return new HBaseTableHandle(schemaTableName, TupleDomain.all());
+    }
 
-        return set;
+    Set<String> getSchemaNames() {
+        return hbaseClientManager.listNamespaces();
     }
 
     void dropTable(String schema, String tableName) {
@@ -107,6 +77,7 @@ public class HBaseTables {
             if (admin != null) {
                 hbaseClientManager.close(admin);
             }
+            hbaseClientManager.invalidateTable(schema, tableName);
         }
     }
 
@@ -16,6 +16,8 @@ package com.analysys.presto.connector.hbase.meta;
 import com.analysys.presto.connector.hbase.utils.Constant;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.analysys.presto.connector.hbase.utils.Utils.isEmpty;
@@ -38,6 +40,10 @@ public class TableMetaInfo {
     private String describe = null;
     private List<ColumnMetaInfo> columns = null;
     private String rowKeySeparator = null;
+    /**
+     * Byte lengths of the columns of rowKeyFormat when each of them has a fixed width, separated by ','
+     */
+    private String rowKeyFormatLengths = null;
 
     /**
      * the range of the first char of rowKey, only support number and char with lower and upper case
@@ -48,6 +54,9 @@ public class TableMetaInfo {
      */
     private String rowKeyFirstCharRange;
 
+    private List<String> rowKeyFormatColumns = null;
+    private List<Integer> rowKeyFormatColumnLengths = null;
+
     public String getTableName() {
         return tableName;
     }
@@ -104,6 +113,71 @@ public class TableMetaInfo {
 
     public void setRowKeyFormat(String rowKeyFormat) {
         this.rowKeyFormat = rowKeyFormat;
+        this.rowKeyFormatColumns = null;
+    }
+
+    /**
+     * @return columns that rowKey consist of, empty if rowKeyFormat is not specified
+     */
+    @JsonIgnore
+    public List<String> getRowKeyFormatColumns() {
+        if (rowKeyFormatColumns == null) {
+            rowKeyFormatColumns = isEmpty(rowKeyFormat)
+                    ? ImmutableList.of() : ImmutableList.copyOf(rowKeyFormat.split(Constant.COMMA));
+        }
+        return rowKeyFormatColumns;
+    }
+
+    public String getRowKeyFormatLengths() {
+        return rowKeyFormatLengths;
+    }
+
+    public void setRowKeyFormatLengths(String rowKeyFormatLengths) {
+        this.rowKeyFormatLengths = rowKeyFormatLengths;
+        this.rowKeyFormatColumnLengths = null;
+    }
+
+    /**
+     * @return byte lengths of the columns that rowKey consist of, empty if they are not fixed width
+     * or rowKeyFormatLengths doesn't match rowKeyFormat
+     */
+    @JsonIgnore
+    public List<Integer> getRowKeyFormatColumnLengths() {
+        if (rowKeyFormatColumnLengths == null) {
+            List<Integer> lengths = ImmutableList.of();
+            if (!isEmpty(rowKeyFormatLengths)) {
+                try {
+                    lengths = Arrays.stream(rowKeyFormatLengths.split(Constant.COMMA))
+                            .map(length -> Integer.valueOf(length.trim()))
+                            .collect(ImmutableList.toImmutableList());
+                } catch (NumberFormatException e) {
+                    lengths = ImmutableList.of();
+                }
+            }
+            rowKeyFormatColumnLengths = lengths.size() == getRowKeyFormatColumns().size()
+                    ? lengths : ImmutableList.of();
+        }
+        return rowKeyFormatColumnLengths;
+    }
+
+    /**
+     * Columns of rowKeyFormat without a family are not stored as cells, their values are decoded from rowKey
+     *
+     * @param columnName column name
+     * @return index of column in rowKeyFormat if it is decoded from rowKey, -1 otherwise
+     */
+    @JsonIgnore
+    public int getRowKeyComponentIndex(String columnName) {
+        if (columns == null) {
+            return -1;
+        }
+        for (ColumnMetaInfo column : columns) {
+            if (column.getColumnName().equals(columnName)) {
+                return column.isRowKey() || !isEmpty(column.getFamily())
+                        ? -1 : getRowKeyFormatColumns().indexOf(columnName);
+            }
+        }
+        return -1;
     }
 
     @JsonIgnore
@@ -148,6 +222,7 @@ public class TableMetaInfo {
                 ", describe='" + describe + '\'' +
                 ", columns=" + columns +
                 ", rowKeySeparator='" + rowKeySeparator + '\'' +
+                ", rowKeyFormatLengths='" + rowKeyFormatLengths + '\'' +
                 '}';
     }
 }
\ No newline at end of file
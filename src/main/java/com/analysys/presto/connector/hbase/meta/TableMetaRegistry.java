@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.meta;
+
+import com.analysys.presto.connector.hbase.utils.Utils;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+import io.prestosql.spi.connector.ColumnMetadata;
+import javax.inject.Inject;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.TABLE_META_CHECK_INTERVAL_MS;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Parsed json meta info of tables in meta-dir, shared by split manager, metadata and HBaseTable.
+ * A table is parsed the first time it is used, and parsed again only when the modified time
+ * or the length of its json file changes, the file is checked at most once per TABLE_META_CHECK_INTERVAL_MS.
+ */
+public class TableMetaRegistry {
+
+    private static final Logger log = Logger.get(TableMetaRegistry.class);
+
+    private final String metaDir;
+    private final ConcurrentMap<String, TableMeta> tables = new ConcurrentHashMap<>();
+
+    @Inject
+    public TableMetaRegistry(HBaseConfig config) {
+        this.metaDir = requireNonNull(config, "config is null").getMetaDir();
+    }
+
+    /**
+     * @return meta info of table, null if the json file doesn't exist or cannot be parsed
+     */
+    public TableMetaInfo getTableMetaInfo(String schemaName, String tableName) {
+        return getTableMeta(schemaName, tableName).tableMetaInfo;
+    }
+
+    /**
+     * @return column meta info of table, empty if the json file doesn't exist or cannot be parsed
+     */
+    public List<ColumnMetadata> getColumnsMetadata(String schemaName, String tableName) {
+        return getTableMeta(schemaName, tableName).columnsMetadata;
+    }
+
+    private TableMeta getTableMeta(String schemaName, String tableName) {
+        File file = Utils.getTableMetaFile(schemaName, tableName, metaDir);
+        String key = file.getPath();
+        long now = System.currentTimeMillis();
+        TableMeta tableMeta = tables.get(key);
+        if (tableMeta != null && now - tableMeta.checkTime < TABLE_META_CHECK_INTERVAL_MS) {
+            return tableMeta;
+        }
+
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (tableMeta != null && tableMeta.lastModified == lastModified && tableMeta.length == length) {
+            tableMeta.checkTime = now;
+            return tableMeta;
+        }
+
+        tableMeta = load(schemaName, tableName, lastModified, length, now);
+        tables.put(key, tableMeta);
+        return tableMeta;
+    }
+
+    private TableMeta load(String schemaName, String tableName, long lastModified, long length, long now) {
+        TableMetaInfo tableMetaInfo = Utils.getTableMetaInfoFromJson(schemaName, tableName, metaDir);
+        ImmutableList.Builder<ColumnMetadata> columnsMetadata = ImmutableList.builder();
+        if (tableMetaInfo != null) {
+            try {
+                for (ColumnMetaInfo col : tableMetaInfo.getColumns()) {
+                    columnsMetadata.add(new HBaseColumnMetadata(col.getFamily(), col.getColumnName(),
+                            Utils.matchType(col.getType()), col.isRowKey()));
+                }
+                // Resolve derived info once, so every query reads it from this parsed instance
+                tableMetaInfo.getRowKeyColName();
+                tableMetaInfo.getRowKeyFormatColumns();
+                tableMetaInfo.getRowKeyFormatColumnLengths();
+            } catch (Exception e) {
+                log.error(e, e.getMessage());
+            }
+        }
+        log.info(String.format("Load meta info of TABLE %s.%s, modified at %d.", schemaName, tableName, lastModified));
+        return new TableMeta(tableMetaInfo, columnsMetadata.build(), lastModified, length, now);
+    }
+
+    private static class TableMeta {
+        private final TableMetaInfo tableMetaInfo;
+        private final List<ColumnMetadata> columnsMetadata;
+        private final long lastModified;
+        private final long length;
+        private volatile long checkTime;
+
+        TableMeta(TableMetaInfo tableMetaInfo, List<ColumnMetadata> columnsMetadata,
+                  long lastModified, long length, long checkTime) {
+            this.tableMetaInfo = tableMetaInfo;
+            this.columnsMetadata = columnsMetadata;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.checkTime = checkTime;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of one access mode or one table, exported over JMX by HBaseStats.
+ * Scan counters come from the ScanMetrics of HBase client, so they are what region servers really did.
+ */
+public class HBaseAccessStats {
+
+    private final CounterStat rows = new CounterStat();
+    private final CounterStat bytes = new CounterStat();
+    private final CounterStat rpcCalls = new CounterStat();
+    private final CounterStat remoteRpcCalls = new CounterStat();
+    private final CounterStat regions = new CounterStat();
+    private final CounterStat bytesInResults = new CounterStat();
+    private final CounterStat remoteBytesInResults = new CounterStat();
+    private final CounterStat rowsScanned = new CounterStat();
+    private final CounterStat rowsFiltered = new CounterStat();
+    private final CounterStat mutations = new CounterStat();
+    private final CounterStat failures = new CounterStat();
+    private final TimeStat openLatency = new TimeStat(TimeUnit.MILLISECONDS);
+    private final TimeStat requestLatency = new TimeStat(TimeUnit.MILLISECONDS);
+
+    void recordScannerOpen(long nanos) {
+        openLatency.add(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordScan(ScanMetrics metrics, long rowCount, long byteCount) {
+        rows.update(rowCount);
+        bytes.update(byteCount);
+        if (metrics != null) {
+            rpcCalls.update(metrics.countOfRPCcalls.get());
+            remoteRpcCalls.update(metrics.countOfRemoteRPCcalls.get());
+            regions.update(metrics.countOfRegions.get());
+            bytesInResults.update(metrics.countOfBytesInResults.get());
+            remoteBytesInResults.update(metrics.countOfBytesInRemoteResults.get());
+            rowsScanned.update(metrics.countOfRowsScanned.get());
+            rowsFiltered.update(metrics.countOfRowsFiltered.get());
+        }
+    }
+
+    void recordRequest(long nanos, long rowCount, long byteCount) {
+        requestLatency.add(nanos, TimeUnit.NANOSECONDS);
+        rpcCalls.update(1);
+        rows.update(rowCount);
+        bytes.update(byteCount);
+    }
+
+    void recordWrite(long nanos, int mutationCount) {
+        requestLatency.add(nanos, TimeUnit.NANOSECONDS);
+        rpcCalls.update(1);
+        mutations.update(mutationCount);
+    }
+
+    void recordFailure() {
+        failures.update(1);
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRows() {
+        return rows;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getBytes() {
+        return bytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRpcCalls() {
+        return rpcCalls;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRemoteRpcCalls() {
+        return remoteRpcCalls;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRegions() {
+        return regions;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getBytesInResults() {
+        return bytesInResults;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRemoteBytesInResults() {
+        return remoteBytesInResults;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRowsScanned() {
+        return rowsScanned;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRowsFiltered() {
+        return rowsFiltered;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMutations() {
+        return mutations;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFailures() {
+        return failures;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getOpenLatency() {
+        return openLatency;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getRequestLatency() {
+        return requestLatency;
+    }
+}
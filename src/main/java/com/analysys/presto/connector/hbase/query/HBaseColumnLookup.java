@@ -0,0 +1,263 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.prestosql.spi.type.DecimalType;
+import io.prestosql.spi.type.Decimals;
+import io.prestosql.spi.type.Type;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.util.Bytes;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static io.prestosql.spi.type.BooleanType.BOOLEAN;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
+import static io.prestosql.spi.type.IntegerType.INTEGER;
+import static io.prestosql.spi.type.SmallintType.SMALLINT;
+import static io.prestosql.spi.type.TinyintType.TINYINT;
+
+/**
+ * Resolve a cell to the output channel of its column by raw (family, qualifier) bytes.
+ * The table is sorted once per split, every lookup is a binary search over the bytes of cell
+ * which doesn't allocate anything, and columns with the same qualifier in different families never collide.
+ * RowKey component columns have no cells, they are decoded from their field of the row,
+ * and the $timestamp column is the latest timestamp of the cells of the row.
+ */
+public class HBaseColumnLookup {
+
+    public static final int NOT_FOUND = -1;
+
+    private final byte[][] families;
+    private final byte[][] qualifiers;
+    private final int[] channels;
+    private final int[] rowKeyChannels;
+    private final int[] timestampChannels;
+    private final int[] componentChannels;
+    private final int[] componentFields;
+    private final Type[] componentTypes;
+    private final byte[] rowKeySeparator;
+
+    public HBaseColumnLookup(List<HBaseColumnHandle> columnHandles, String rowKeyName) {
+        List<Integer> rowKeyChannelList = new ArrayList<>();
+        List<Integer> timestampChannelList = new ArrayList<>();
+        List<HBaseColumnHandle> components = new ArrayList<>();
+        List<Integer> componentChannelList = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        for (int channel = 0; channel < columnHandles.size(); channel++) {
+            HBaseColumnHandle hch = columnHandles.get(channel);
+            // RowKey column has no column family, its value comes from the row of cell
+            if (hch.getColumnName().equals(rowKeyName)) {
+                rowKeyChannelList.add(channel);
+            } else if (hch.isTimestamp()) {
+                timestampChannelList.add(channel);
+            } else if (hch.isRowKeyComponent()) {
+                components.add(hch);
+                componentChannelList.add(channel);
+            } else {
+                entries.add(new Entry(Bytes.toBytes(hch.getFamily()), Bytes.toBytes(hch.getColumnName()), channel));
+            }
+        }
+        entries.sort(Comparator.<Entry, byte[]>comparing(e -> e.family, Bytes.BYTES_COMPARATOR)
+                .thenComparing(e -> e.qualifier, Bytes.BYTES_COMPARATOR));
+
+        int size = entries.size();
+        this.families = new byte[size][];
+        this.qualifiers = new byte[size][];
+        this.channels = new int[size];
+        for (int i = 0; i < size; i++) {
+            families[i] = entries.get(i).family;
+            qualifiers[i] = entries.get(i).qualifier;
+            channels[i] = entries.get(i).channel;
+        }
+        this.rowKeyChannels = rowKeyChannelList.stream().mapToInt(Integer::intValue).toArray();
+        this.timestampChannels = timestampChannelList.stream().mapToInt(Integer::intValue).toArray();
+        this.componentChannels = componentChannelList.stream().mapToInt(Integer::intValue).toArray();
+        this.componentFields = components.stream().mapToInt(HBaseColumnHandle::getRowKeyField).toArray();
+        this.componentTypes = components.stream().map(HBaseColumnHandle::getColumnType).toArray(Type[]::new);
+        // all components of a table share the separator of its rowKey
+        this.rowKeySeparator = components.isEmpty() ? new byte[0] : Bytes.toBytes(components.get(0).getRowKeySeparator());
+    }
+
+    /**
+     * Find the output channel of cell.
+     *
+     * @param cell cell
+     * @return channel, NOT_FOUND if this column is not queried
+     */
+    public int findChannel(Cell cell) {
+        int low = 0;
+        int high = channels.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Bytes.compareTo(families[mid], 0, families[mid].length,
+                    cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+            if (cmp == 0) {
+                cmp = Bytes.compareTo(qualifiers[mid], 0, qualifiers[mid].length,
+                        cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return channels[mid];
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return channels of the rowKey column, empty if rowKey is not queried
+     */
+    public int[] getRowKeyChannels() {
+        return rowKeyChannels;
+    }
+
+    /**
+     * @return channels of the $timestamp column, empty if it is not queried
+     */
+    public int[] getTimestampChannels() {
+        return timestampChannels;
+    }
+
+    /**
+     * @param cells cells of a row
+     * @return the latest timestamp of cells, which is the value of $timestamp column
+     */
+    public static long getLatestTimestamp(Cell[] cells) {
+        long timestamp = Long.MIN_VALUE;
+        for (Cell cell : cells) {
+            timestamp = Math.max(timestamp, cell.getTimestamp());
+        }
+        return timestamp;
+    }
+
+    /**
+     * @return channels of the rowKey component columns, empty if none of them is queried
+     */
+    public int[] getRowKeyComponentChannels() {
+        return componentChannels;
+    }
+
+    /**
+     * Decode the value of a rowKey component column from its field of row.
+     * Components are the text of their values, varchar values are wrapped rather than copied.
+     *
+     * @param component index of the component in getRowKeyComponentChannels
+     * @param row       array that contains the row
+     * @param offset    offset of row
+     * @param length    length of row
+     * @return native value of the column, null if row has no such field or it is not a value of the type
+     */
+    public Object decodeRowKeyComponent(int component, byte[] row, int offset, int length) {
+        int end = offset + length;
+        int fieldStart = offset;
+        for (int i = 0; i < componentFields[component]; i++) {
+            int separator = indexOfSeparator(row, fieldStart, end);
+            if (separator < 0) {
+                return null;
+            }
+            fieldStart = separator + rowKeySeparator.length;
+        }
+        int fieldEnd = indexOfSeparator(row, fieldStart, end);
+        return toNativeValue(componentTypes[component], row, fieldStart, (fieldEnd < 0 ? end : fieldEnd) - fieldStart);
+    }
+
+    private int indexOfSeparator(byte[] row, int from, int end) {
+        if (rowKeySeparator.length == 0) {
+            return -1;
+        }
+        for (int i = from; i <= end - rowKeySeparator.length; i++) {
+            if (Bytes.equals(row, i, rowKeySeparator.length, rowKeySeparator, 0, rowKeySeparator.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object toNativeValue(Type type, byte[] bytes, int offset, int length) {
+        if (!(type instanceof DecimalType) && type.getJavaType() == Slice.class) {
+            return Slices.wrappedBuffer(bytes, offset, length);
+        }
+        String text = Bytes.toString(bytes, offset, length);
+        try {
+            if (type instanceof DecimalType) {
+                return toDecimalValue((DecimalType) type, text);
+            } else if (type.equals(BOOLEAN)) {
+                // 0: false, 1: true
+                return "1".equals(text) || Boolean.parseBoolean(text);
+            } else if (type.equals(DOUBLE)) {
+                return Double.parseDouble(text);
+            } else if (type.getJavaType() == long.class) {
+                long value = Long.parseLong(text);
+                // Text out of the range of a narrow type is not a value of it, rather than being truncated
+                if ((type.equals(INTEGER) && value != (int) value)
+                        || (type.equals(SMALLINT) && value != (short) value)
+                        || (type.equals(TINYINT) && value != (byte) value)) {
+                    return null;
+                }
+                return value;
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * @return unscaled long of a short decimal, encoded Slice of a long decimal,
+     * null if the value doesn't fit the precision of type
+     */
+    private static Object toDecimalValue(DecimalType type, String text) {
+        BigDecimal value = new BigDecimal(text).setScale(type.getScale(), RoundingMode.HALF_UP);
+        if (value.precision() > type.getPrecision()) {
+            return null;
+        }
+        return type.isShort() ? (Object) value.unscaledValue().longValueExact() : Decimals.encodeScaledValue(value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buff = new StringBuilder("HBaseColumnLookup{");
+        for (int i = 0; i < channels.length; i++) {
+            if (i > 0) {
+                buff.append(", ");
+            }
+            buff.append(Bytes.toString(families[i])).append(":").append(Bytes.toString(qualifiers[i]))
+                    .append("=").append(channels[i]);
+        }
+        return buff.append(", rowKeyChannels=").append(Arrays.toString(rowKeyChannels))
+                .append(", rowKeyComponentChannels=").append(Arrays.toString(componentChannels))
+                .append(", timestampChannels=").append(Arrays.toString(timestampChannels)).append('}').toString();
+    }
+
+    private static class Entry {
+        final byte[] family;
+        final byte[] qualifier;
+        final int channel;
+
+        Entry(byte[] family, byte[] qualifier, int channel) {
+            this.family = family;
+            this.qualifier = qualifier;
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Marker;
+import io.prestosql.spi.predicate.Range;
+import io.prestosql.spi.predicate.TupleDomain;
+import io.prestosql.spi.predicate.ValueSet;
+import io.prestosql.spi.type.Type;
+import io.prestosql.spi.type.VarcharType;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.util.Bytes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.MAX_FILTER_RANGES_PER_COLUMN;
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.BooleanType.BOOLEAN;
+import static io.prestosql.spi.type.DoubleType.DOUBLE;
+import static io.prestosql.spi.type.IntegerType.INTEGER;
+import static io.prestosql.spi.type.TimestampType.TIMESTAMP;
+
+/**
+ * Compile the constraint of a table into the filter of its scans, so rows are cut down on the region server.
+ * The domain of a column becomes one filter: its ranges are OR-ed and the bounds of a range are AND-ed,
+ * null is a missing cell or an empty value of a non varchar column, and is kept when the domain allows it.
+ * Values are stored as Bytes.toBytes(value) and compared as raw bytes, which only keeps the order of numbers
+ * of the same sign: negative numbers sort after positive ones, and negative doubles sort in reverse order.
+ * So a range of numbers is cut at zero into one byte range per sign. The engine filters the rows again,
+ * predicates on other types are left to it.
+ */
+final class HBaseFilterCompiler {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private HBaseFilterCompiler() {
+    }
+
+    /**
+     * @param constraint constraint of table
+     * @param columns    columns read by scan, a filter can only see the cells of these columns
+     * @return filter of the constrained columns, empty if none of them can be filtered on the region server
+     */
+    static Optional<Filter> compile(TupleDomain<ColumnHandle> constraint, Set<HBaseColumnHandle> columns) {
+        if (!constraint.getDomains().isPresent()) {
+            return Optional.empty();
+        }
+        List<Filter> filters = new ArrayList<>();
+        for (Map.Entry<ColumnHandle, Domain> entry : constraint.getDomains().get().entrySet()) {
+            HBaseColumnHandle column = (HBaseColumnHandle) entry.getKey();
+            // rowKey and its components have no cells, their predicates are the rowKey ranges of split,
+            // nor does $timestamp, its predicate is the time range of scan
+            if (column.isRowKey() || column.isRowKeyComponent() || column.getFamily().isEmpty()
+                    || !columns.contains(column)) {
+                continue;
+            }
+            compile(column, entry.getValue()).ifPresent(filters::add);
+        }
+        if (filters.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(filters.size() == 1 ? filters.get(0) : new FilterList(FilterList.Operator.MUST_PASS_ALL, filters));
+    }
+
+    /**
+     * Cells older than the time range are skipped by scans and gets, store files older than it are not read at all.
+     * A time range drops cells rather than rows, so it is only pushed down when it can't change a selected value:
+     * the query reads no cells of value columns, which would come back null, and only the lower bound is used.
+     * The latest timestamp of a row is kept by the lower bound whenever the row matches, while an upper bound
+     * would hide the newer cells and turn the latest timestamp into an older one that matches.
+     * The engine filters the rows again with the whole domain.
+     *
+     * @param constraint constraint of table
+     * @param columns    columns read by the scan or get
+     * @return time range from the lower bound of $timestamp domain,
+     * empty if $timestamp has no lower bound or a value column is read
+     */
+    static Optional<TimeRange> compileTimeRange(TupleDomain<ColumnHandle> constraint, List<HBaseColumnHandle> columns) {
+        if (columns.stream().anyMatch(hch -> !hch.isRowKey() && !hch.isRowKeyComponent() && !hch.isTimestamp())) {
+            return Optional.empty();
+        }
+        Optional<Domain> timestampDomain = constraint.getDomains().flatMap(domains -> domains.entrySet().stream()
+                .filter(entry -> ((HBaseColumnHandle) entry.getKey()).isTimestamp())
+                .map(Map.Entry::getValue).findFirst());
+        if (!timestampDomain.isPresent() || timestampDomain.get().getValues().isAll()
+                || timestampDomain.get().getValues().isNone()) {
+            return Optional.empty();
+        }
+        Marker low = timestampDomain.get().getValues().getRanges().getSpan().getLow();
+        if (low.isLowerUnbounded()) {
+            return Optional.empty();
+        }
+        // min of TimeRange is inclusive, cell timestamps are never negative
+        long value = (Long) low.getValue();
+        if (low.getBound() == Marker.Bound.ABOVE && value == Long.MAX_VALUE) {
+            return Optional.empty();
+        }
+        long min = Math.max(low.getBound() == Marker.Bound.ABOVE ? value + 1 : value, 0L);
+        return Optional.of(new TimeRange(min, Long.MAX_VALUE));
+    }
+
+    /**
+     * @return filter of the rows whose value of column is in domain, empty if it can't be filtered
+     */
+    static Optional<Filter> compile(HBaseColumnHandle column, Domain domain) {
+        if (domain.isAll()) {
+            return Optional.empty();
+        }
+        byte[] family = Bytes.toBytes(column.getFamily());
+        byte[] qualifier = Bytes.toBytes(column.getColumnName());
+        boolean varchar = domain.getType() instanceof VarcharType;
+
+        List<Filter> alternatives = new ArrayList<>();
+        ValueSet values = domain.getValues();
+        if (values.isAll()) {
+            // IS NOT NULL
+            alternatives.add(valueFilter(family, qualifier,
+                    varchar ? CompareOperator.GREATER_OR_EQUAL : CompareOperator.GREATER, EMPTY));
+        } else if (!values.isNone()) {
+            if (!isOrderPreserved(domain.getType())) {
+                return Optional.empty();
+            }
+            List<Range> ranges = values.getRanges().getOrderedRanges();
+            if (ranges.size() > MAX_FILTER_RANGES_PER_COLUMN) {
+                ranges = ImmutableList.of(values.getRanges().getSpan());
+            }
+            for (Range range : ranges) {
+                for (ByteRange byteRange : toByteRanges(domain.getType(), range)) {
+                    alternatives.add(byteRange.toFilter(family, qualifier, varchar));
+                }
+            }
+            if (alternatives.isEmpty() && !domain.isNullAllowed()) {
+                return Optional.empty();
+            }
+        }
+        if (domain.isNullAllowed()) {
+            // IS NULL, the row passes if it doesn't have the column, or its value is empty
+            SingleColumnValueFilter isNull = new SingleColumnValueFilter(family, qualifier,
+                    varchar ? CompareOperator.LESS : CompareOperator.LESS_OR_EQUAL, new BinaryComparator(EMPTY));
+            isNull.setFilterIfMissing(false);
+            alternatives.add(isNull);
+        }
+        if (alternatives.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(alternatives.size() == 1
+                ? alternatives.get(0) : new FilterList(FilterList.Operator.MUST_PASS_ONE, alternatives));
+    }
+
+    /**
+     * @return true if the bytes of the values of type can be compared as ranges of each sign
+     */
+    private static boolean isOrderPreserved(Type type) {
+        return type instanceof VarcharType || type.equals(BIGINT) || type.equals(TIMESTAMP)
+                || type.equals(INTEGER) || type.equals(BOOLEAN) || type.equals(DOUBLE);
+    }
+
+    static List<ByteRange> toByteRanges(Type type, Range range) {
+        if (type instanceof VarcharType) {
+            return ImmutableList.of(new ByteRange(
+                    range.getLow().isLowerUnbounded() ? null : ((Slice) range.getLow().getValue()).getBytes(),
+                    range.getLow().getBound() == Marker.Bound.EXACTLY,
+                    range.getHigh().isUpperUnbounded() ? null : ((Slice) range.getHigh().getValue()).getBytes(),
+                    range.getHigh().getBound() == Marker.Bound.EXACTLY));
+        } else if (type.equals(DOUBLE)) {
+            return toDoubleByteRanges(range);
+        }
+        // Boolean is stored as int value like 0:false 1:true.
+        boolean isInt = type.equals(INTEGER) || type.equals(BOOLEAN);
+        long min = isInt ? Integer.MIN_VALUE : Long.MIN_VALUE;
+        long max = isInt ? Integer.MAX_VALUE : Long.MAX_VALUE;
+        long low = min;
+        long high = max;
+        if (!range.getLow().isLowerUnbounded()) {
+            low = toLong(range.getLow().getValue());
+            if (range.getLow().getBound() == Marker.Bound.ABOVE) {
+                if (low == max) {
+                    return ImmutableList.of();
+                }
+                low++;
+            }
+        }
+        if (!range.getHigh().isUpperUnbounded()) {
+            high = toLong(range.getHigh().getValue());
+            if (range.getHigh().getBound() == Marker.Bound.BELOW) {
+                if (high == min) {
+                    return ImmutableList.of();
+                }
+                high--;
+            }
+        }
+        List<ByteRange> byteRanges = new ArrayList<>(2);
+        if (low < 0 && low <= high) {
+            byteRanges.add(new ByteRange(toBytes(low, isInt), true, toBytes(Math.min(high, -1L), isInt), true));
+        }
+        if (high >= 0 && low <= high) {
+            byteRanges.add(new ByteRange(toBytes(Math.max(low, 0L), isInt), true, toBytes(high, isInt), true));
+        }
+        return byteRanges;
+    }
+
+    /**
+     * Positive doubles sort by their bytes, negative doubles sort in reverse order after them.
+     * Zero is either +0.0 or -0.0, which is the smallest negative bytes.
+     */
+    private static List<ByteRange> toDoubleByteRanges(Range range) {
+        boolean lowBounded = !range.getLow().isLowerUnbounded();
+        boolean highBounded = !range.getHigh().isUpperUnbounded();
+        double low = lowBounded ? (Double) range.getLow().getValue() : Double.NEGATIVE_INFINITY;
+        double high = highBounded ? (Double) range.getHigh().getValue() : Double.POSITIVE_INFINITY;
+        boolean lowInclusive = !lowBounded || range.getLow().getBound() == Marker.Bound.EXACTLY;
+        boolean highInclusive = !highBounded || range.getHigh().getBound() == Marker.Bound.EXACTLY;
+        byte[] negativeZero = Bytes.toBytes(-0.0d);
+
+        List<ByteRange> byteRanges = new ArrayList<>(2);
+        if (low < 0 || (low == 0 && lowInclusive)) {
+            // from the bytes of the high value down to the bytes of the low value
+            byteRanges.add(new ByteRange(
+                    high < 0 ? Bytes.toBytes(high) : negativeZero,
+                    high < 0 ? highInclusive : high > 0 || highInclusive,
+                    !lowBounded ? null : low < 0 ? Bytes.toBytes(low) : negativeZero,
+                    low >= 0 || lowInclusive));
+        }
+        if (high > 0 || (high == 0 && highInclusive)) {
+            // positive doubles are all lower than the bytes of -0.0
+            boolean fromZero = low < 0 || (low == 0 && lowInclusive);
+            byteRanges.add(new ByteRange(
+                    fromZero ? Bytes.toBytes(0.0d) : Bytes.toBytes(low), fromZero || lowInclusive,
+                    highBounded ? Bytes.toBytes(high) : negativeZero, highBounded && highInclusive));
+        }
+        return byteRanges;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Boolean ? ((Boolean) value ? 1L : 0L) : (Long) value;
+    }
+
+    private static byte[] toBytes(long value, boolean isInt) {
+        return isInt ? Bytes.toBytes((int) value) : Bytes.toBytes(value);
+    }
+
+    private static SingleColumnValueFilter valueFilter(byte[] family, byte[] qualifier,
+                                                       CompareOperator operator, byte[] value) {
+        SingleColumnValueFilter filter = new SingleColumnValueFilter(family, qualifier, operator,
+                new BinaryComparator(value));
+        filter.setFilterIfMissing(true);
+        return filter;
+    }
+
+    /**
+     * Range of the bytes of values, null bound means unbounded
+     */
+    static class ByteRange {
+        final byte[] low;
+        final boolean lowInclusive;
+        final byte[] high;
+        final boolean highInclusive;
+
+        ByteRange(byte[] low, boolean lowInclusive, byte[] high, boolean highInclusive) {
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        Filter toFilter(byte[] family, byte[] qualifier, boolean varchar) {
+            if (low != null && high != null && lowInclusive && highInclusive && Bytes.equals(low, high)) {
+                return valueFilter(family, qualifier, CompareOperator.EQUAL, low);
+            }
+            List<Filter> bounds = new ArrayList<>(2);
+            // an empty value of a non varchar column is null, it is never in a range
+            if (low != null || !varchar) {
+                bounds.add(valueFilter(family, qualifier, low == null ? CompareOperator.GREATER
+                        : lowInclusive ? CompareOperator.GREATER_OR_EQUAL : CompareOperator.GREATER,
+                        low == null ? EMPTY : low));
+            }
+            if (high != null) {
+                bounds.add(valueFilter(family, qualifier,
+                        highInclusive ? CompareOperator.LESS_OR_EQUAL : CompareOperator.LESS, high));
+            }
+            if (bounds.isEmpty()) {
+                // every value of varchar
+                return valueFilter(family, qualifier, CompareOperator.GREATER_OR_EQUAL, EMPTY);
+            }
+            return bounds.size() == 1 ? bounds.get(0) : new FilterList(FilterList.Operator.MUST_PASS_ALL, bounds);
+        }
+    }
+}
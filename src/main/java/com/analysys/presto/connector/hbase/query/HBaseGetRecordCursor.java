@@ -16,28 +16,33 @@ package com.analysys.presto.connector.hbase.query;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import io.airlift.log.Logger;
+import io.prestosql.spi.PrestoException;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.type.Type;
-import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Result;
-import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.util.Bytes;
+import java.io.IOException;
 import java.net.InetAddress;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.analysys.presto.connector.hbase.utils.Constant.SYSTEMOUT_INTERVAL;
-import static com.analysys.presto.connector.hbase.utils.Utils.arrayCopy;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Use record.rawCells() api to loop column value, this is 20% faster than result.getValue
+ * Gets are issued in chunks through the async client with a bounded number of chunks in flight,
+ * so rows are streamed out while the following chunks are still being fetched.
  *
  * @author wupeng
  * @date 2019/01/29
@@ -46,67 +51,120 @@ public class HBaseGetRecordCursor extends HBaseRecordCursor {
 
     private static final Logger log = Logger.get(HBaseGetRecordCursor.class);
 
-    private Connection connection;
+    private AsyncTable<?> table;
+    private String tableName;
 
-    private int currentRecordIndex = 0;
+    /**
+     * Gets that have not been issued yet, each chunk is issued by one multi get
+     */
+    private Iterator<List<Get>> pendingChunks = Collections.emptyIterator();
+    private final int maxInFlightChunks;
+    /**
+     * Time range of the cells to get, null if cells of any time are read
+     */
+    private final TimeRange timeRange;
+    private final Deque<CompletableFuture<List<Result>>> inFlightChunks = new ArrayDeque<>();
+    private volatile boolean closed;
 
-    private Result[] results = null;
+    private Iterator<Result> currentChunk = Collections.emptyIterator();
+    private long currentChunkBytes = 0L;
 
     HBaseGetRecordCursor(List<HBaseColumnHandle> columnHandles, HBaseSplit hBaseSplit,
-                         Map<Integer, HBaseColumnHandle> fieldIndexMap, Connection connection) {
+                         HBaseColumnLookup columnLookup, HBaseStats stats, TimeRange timeRange,
+                         AsyncConnection asyncConnection, int chunkSize, int maxInFlightChunks) {
+        this.stats = stats;
         startTime = System.currentTimeMillis();
         this.columnHandles = columnHandles;
-        this.fieldIndexMap = fieldIndexMap;
+        this.columnLookup = columnLookup;
+        this.rowBuffer = new HBaseRowBuffer(columnHandles.size());
 
         this.rowKeyColName = requireNonNull(hBaseSplit.getRowKeyName(),
                 "RowKeyName cannot be null if you want to query by RowKey");
 
         this.split = hBaseSplit;
-        this.connection = connection;
-        try (Table table = connection.getTable(
-                TableName.valueOf(hBaseSplit.getSchemaName() + ":" + hBaseSplit.getTableName()))) {
+        this.maxInFlightChunks = maxInFlightChunks;
+        this.timeRange = timeRange;
+        this.tableName = hBaseSplit.getSchemaName() + ":" + hBaseSplit.getTableName();
+        try {
+            this.table = requireNonNull(asyncConnection, "asyncConnection is null")
+                    .getTable(TableName.valueOf(tableName));
             List<String> rowKeys = hBaseSplit.getConstraint().stream()
                     .map(cond -> (String) cond.getValue()).collect(Collectors.toList());
-            this.results = getResults(rowKeys, table);
+            this.pendingChunks = Lists.partition(getGets(rowKeys), chunkSize).iterator();
+            // Rows are streamed out as the first chunk completes, the following chunks are already in flight
+            issueChunks();
         } catch (Exception e) {
+            // an empty cursor would look like rows that don't exist, the query must fail instead
             log.error(e, e.getMessage());
+            stats.recordFailure(tableName, HBaseStats.AccessMode.BATCH_GET);
             this.close();
+            throwIfInstanceOf(e, PrestoException.class);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Batch get of " + tableName + " failed", e);
         }
         this.totalBytes = 0L;
     }
 
-    private Result[] getResults(List<String> rowKeys, Table table) {
-        List<Get> gets = rowKeys.stream().map(rowKey -> {
-                    Get get = new Get(Bytes.toBytes(rowKey));
-                    for (ColumnHandle ch : columnHandles) {
-                        HBaseColumnHandle hch = (HBaseColumnHandle) ch;
-                        // RowKey column has no column family, so we don't need to do get.addColumn() here.
-                        if (this.split.getRowKeyName() != null
-                                && this.split.getRowKeyName().equals(hch.getColumnName())) {
-                            continue;
+    private List<Get> getGets(List<String> rowKeys) throws IOException {
+        List<Get> gets = new ArrayList<>(rowKeys.size());
+        for (String rowKey : rowKeys) {
+            Get get = new Get(Bytes.toBytes(rowKey));
+            for (ColumnHandle ch : columnHandles) {
+                HBaseColumnHandle hch = (HBaseColumnHandle) ch;
+                // RowKey column has no column family, so we don't need to do get.addColumn() here.
+                // Neither do rowKey components and $timestamp, they are read from the row and its cells.
+                if ((this.split.getRowKeyName() != null && this.split.getRowKeyName().equals(hch.getColumnName()))
+                        || hch.isRowKeyComponent() || hch.isTimestamp()) {
+                    continue;
+                }
+                get.addColumn(Bytes.toBytes(hch.getFamily()), Bytes.toBytes(hch.getColumnName()));
+            }
+            if (timeRange != null) {
+                get.setTimeRange(timeRange.getMin(), timeRange.getMax());
+            }
+            gets.add(get);
+        }
+        return gets;
+    }
+
+    /**
+     * Issue chunks until maxInFlightChunks multi gets are in flight.
+     */
+    private void issueChunks() {
+        while (inFlightChunks.size() < maxInFlightChunks && pendingChunks.hasNext()) {
+            List<Get> chunk = pendingChunks.next();
+            long start = System.nanoTime();
+            CompletableFuture<List<Result>> request = table.getAll(chunk);
+            inFlightChunks.add(request);
+            request.whenComplete((results, e) -> {
+                // chunks cancelled by close are not counted
+                if (closed) {
+                    return;
+                }
+                if (e != null) {
+                    stats.recordFailure(tableName, HBaseStats.AccessMode.BATCH_GET);
+                } else {
+                    long rows = 0L;
+                    long bytes = 0L;
+                    for (Result result : results) {
+                        if (result != null && !result.isEmpty()) {
+                            rows++;
+                            bytes += Result.getTotalSizeOfCells(result);
                         }
-                        get.addColumn(Bytes.toBytes(hch.getFamily()), Bytes.toBytes(hch.getColumnName()));
                     }
-                    return get;
+                    stats.recordRequest(tableName, HBaseStats.AccessMode.BATCH_GET,
+                            System.nanoTime() - start, rows, bytes);
                 }
-        ).collect(Collectors.toList());
-
-        try {
-            return table.get(gets);
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            return null;
+            });
         }
     }
 
     @Override
     public boolean advanceNextPosition() {
-        String colName = null;
+        Result record = null;
         try {
-            // if we got error when reading data, return false to end this reading.
-            if (results == null) {
-                return false;
-            } else if (this.currentRecordIndex >= this.results.length) {
+            // RecordCursor has no way to yield, so it waits for the chunk in flight
+            record = this.nextRecord(true);
+            if (record == null) {
                 InetAddress localhost = InetAddress.getLocalHost();
                 // Random printing
                 if (System.currentTimeMillis() % SYSTEMOUT_INTERVAL == 0) {
@@ -119,54 +177,113 @@ public class HBaseGetRecordCursor extends HBaseRecordCursor {
                 }
                 return false;
             } else {
-                fields = new Object[this.columnHandles.size()];
-                ordinalPositionAndFieldsIndexMap.clear();
-                int fieldIndex = 0;
-
-                Result record = this.results[this.currentRecordIndex];
-
-                for (Cell cell : record.rawCells()) {
-                    colName = Bytes.toString(
-                            arrayCopy(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()));
-                    HBaseColumnHandle hch = fieldIndexMap.get(colName.hashCode());
-                    if (hch == null) {
-                        continue;
-                    }
-                    Object value = matchValue(hch.getColumnType(),
-                            arrayCopy(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
-                    fields[fieldIndex] = value;
-                    ordinalPositionAndFieldsIndexMap.put(hch.getOrdinalPosition(), fieldIndex);
-                    fieldIndex++;
-                }
-
-                // Handle the value of rowKey column
-                setRowKeyValue2FieldsAry(record, fieldIndex);
-
-                this.currentRecordIndex++;
+                fillRow(record);
                 return true;
             }
         } catch (Exception ex) {
             log.error(ex, ex.getMessage());
             this.close();
-            log.error("fieldIndexMap.size=" + fieldIndexMap.size() + ", ERROR ColName=" + colName);
-            fieldIndexMap.forEach((cName, columnHandle) ->
-                    log.error("fieldIndexMap: key=" + cName + ", hch.toString=" + columnHandle.toString())
-            );
-            return false;
+            log.error("ERROR RowKey=" + (record == null ? null : Bytes.toString(record.getRow()))
+                    + ", columnLookup=" + columnLookup);
+            throwIfInstanceOf(ex, PrestoException.class);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Batch get of " + tableName + " failed", ex);
         }
     }
 
+    /**
+     * Never waits for a chunk in flight, the page source waits on isBlocked() instead.
+     *
+     * @return next Result, null if there is no more data or the next chunk is not complete yet
+     */
     @Override
-    public void close() {
-        if (this.connection != null) {
-            try {
-                this.connection.close();
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
+    Result getNextRecord() {
+        return nextRecord(false);
+    }
+
+    /**
+     * Rows that don't exist in HBase come back as empty Results, skip them.
+     *
+     * @param wait wait for the oldest chunk in flight, otherwise return null if it is not complete
+     */
+    private Result nextRecord(boolean wait) {
+        while (true) {
+            while (currentChunk.hasNext()) {
+                Result record = currentChunk.next();
+                if (record != null && !record.isEmpty()) {
+                    recordCount++;
+                    return record;
+                }
+            }
+            CompletableFuture<List<Result>> chunk = inFlightChunks.peek();
+            if (chunk == null || (!wait && !chunk.isDone())) {
+                return null;
             }
+            nextChunk();
         }
     }
 
+    @Override
+    boolean isFinished() {
+        return !currentChunk.hasNext() && inFlightChunks.isEmpty();
+    }
+
+    @Override
+    CompletableFuture<?> isBlocked() {
+        CompletableFuture<List<Result>> chunk = inFlightChunks.peek();
+        if (currentChunk.hasNext() || chunk == null || chunk.isDone()) {
+            return NOT_BLOCKED;
+        }
+        return chunk;
+    }
+
+    /**
+     * Take the Results of the oldest chunk in flight, rows keep the order of row keys.
+     *
+     * @throws PrestoException if the chunk failed, rows of a split are never silently dropped
+     */
+    private void nextChunk() {
+        CompletableFuture<List<Result>> chunk = inFlightChunks.poll();
+        long start = System.nanoTime();
+        try {
+            List<Result> results = chunk.join();
+            readTimeNanos += System.nanoTime() - start;
+            currentChunkBytes = 0L;
+            for (Result result : results) {
+                if (result != null) {
+                    currentChunkBytes += Result.getTotalSizeOfCells(result);
+                }
+            }
+            totalBytes += currentChunkBytes;
+            currentChunk = results.iterator();
+            issueChunks();
+        } catch (Exception e) {
+            log.error(e, e.getMessage());
+            this.close();
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Multi get of " + tableName + " failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        this.pendingChunks = Collections.emptyIterator();
+        this.currentChunk = Collections.emptyIterator();
+        this.currentChunkBytes = 0L;
+        // Chunks in flight are cancelled, their Results are dropped
+        for (CompletableFuture<List<Result>> chunk : inFlightChunks) {
+            chunk.cancel(true);
+        }
+        this.inFlightChunks.clear();
+    }
+
+    /**
+     * Only the chunk being decoded is held by the cursor
+     */
+    @Override
+    public long getSystemMemoryUsage() {
+        return this.currentChunkBytes;
+    }
+
     @Override
     public long getCompletedBytes() {
         return this.totalBytes;
@@ -174,7 +291,7 @@ public class HBaseGetRecordCursor extends HBaseRecordCursor {
 
     @Override
     public long getReadTimeNanos() {
-        return 0L;
+        return this.readTimeNanos;
     }
 
     @Override
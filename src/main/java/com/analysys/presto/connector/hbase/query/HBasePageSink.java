@@ -29,17 +29,17 @@ import io.prestosql.spi.type.DecimalType;
 import io.prestosql.spi.type.SqlDecimal;
 import io.prestosql.spi.type.StandardTypes;
 import io.prestosql.spi.type.Type;
-import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.util.Bytes;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
 import static com.analysys.presto.connector.hbase.utils.Constant.ARRAY_STRING_SPLITTER;
 import static com.analysys.presto.connector.hbase.utils.Constant.SYSTEMOUT_INTERVAL;
+import static com.analysys.presto.connector.hbase.utils.Utils.isEmpty;
 import static io.prestosql.spi.type.BigintType.BIGINT;
 import static io.prestosql.spi.type.BooleanType.BOOLEAN;
 import static io.prestosql.spi.type.DoubleType.DOUBLE;
@@ -64,12 +64,15 @@ public class HBasePageSink implements ConnectorPageSink {
     private String schemaName = null;
     private String tableName = null;
     private HBaseClientManager clientManager;
+    private final HBaseStats stats;
     private final int rowKeyColumnChannel;
     private final Map<String, String> colNameAndFamilyNameMap;
 
     public HBasePageSink(HBaseClientManager clientManager,
-                         HBaseInsertTableHandle insertTableHandle) {
+                         HBaseInsertTableHandle insertTableHandle,
+                         HBaseStats stats) {
         requireNonNull(clientManager, "clientManager is null");
+        this.stats = requireNonNull(stats, "stats is null");
         this.columnTypes = insertTableHandle.getColumnTypes();
         this.columnNames = insertTableHandle.getColumnNames();
 
@@ -90,8 +93,7 @@ public class HBasePageSink implements ConnectorPageSink {
         long startTime = System.currentTimeMillis();
         List<Put> puts = new ArrayList<>(10000);
         String rowKey = null;
-        try (Connection connection = this.clientManager.createConnection();
-             Table table = connection.getTable(TableName.valueOf(schemaName + ":" + tableName))) {
+        try (Table table = this.clientManager.borrowTable(schemaName, tableName)) {
 
             for (int position = 0; position < page.getPositionCount(); position++) {
                 rowKey = getRowKeyByChannel(page, this.rowKeyColumnChannel, position);
@@ -107,12 +109,12 @@ public class HBasePageSink implements ConnectorPageSink {
                 puts.add(put);
 
                 if (puts.size() >= 10000) {
-                    table.put(puts);
+                    put(table, puts);
                     puts.clear();
                 }
             }
 
-            table.put(puts);
+            put(table, puts);
 
             if (System.currentTimeMillis() % SYSTEMOUT_INTERVAL == 0)
                 log.info("INSERT DATA. StartTime=" + new Date(startTime).toString()
@@ -122,11 +124,19 @@ public class HBasePageSink implements ConnectorPageSink {
 
         } catch (Exception e) {
             log.error(e.getMessage(), e);
+            stats.recordFailure(schemaName + ":" + tableName, HBaseStats.AccessMode.INSERT);
         }
 
         return NOT_BLOCKED;
     }
 
+    private void put(Table table, List<Put> puts) throws IOException {
+        long start = System.nanoTime();
+        table.put(puts);
+        stats.recordWrite(schemaName + ":" + tableName, HBaseStats.AccessMode.INSERT,
+                System.nanoTime() - start, puts.size());
+    }
+
     /**
      * Find the value of RowKey column by channel.
      *
@@ -151,7 +161,8 @@ public class HBasePageSink implements ConnectorPageSink {
         String columnFamilyName = this.colNameAndFamilyNameMap.get(columnNames.get(destChannel));
 
         // get value, add to Put
-        if (block.isNull(position)) {
+        // Columns without a family are components of rowKey, their values are in the rowKey already
+        if (block.isNull(position) || isEmpty(columnFamilyName)) {
             // row.setNull(destChannel);
             return;
         } else if (TIMESTAMP.equals(type)) {
@@ -31,10 +31,12 @@ import static java.util.Objects.requireNonNull;
  */
 public class HBasePageSinkProvider implements ConnectorPageSinkProvider {
     private final HBaseClientManager clientManager;
+    private final HBaseStats stats;
 
     @Inject
-    public HBasePageSinkProvider(HBaseClientManager clientManager) {
+    public HBasePageSinkProvider(HBaseClientManager clientManager, HBaseStats stats) {
         this.clientManager = requireNonNull(clientManager, "clientManager is null");
+        this.stats = requireNonNull(stats, "stats is null");
     }
 
     /**
@@ -58,7 +60,7 @@ public class HBasePageSinkProvider implements ConnectorPageSinkProvider {
                 "insertTableHandle is not an instance of HBaseInsertTableHandle.");
         HBaseInsertTableHandle handle = (HBaseInsertTableHandle) insertTableHandle;
 
-        return new HBasePageSink(clientManager, handle);
+        return new HBasePageSink(clientManager, handle, stats);
     }
 }
 
@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import io.airlift.log.Logger;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.prestosql.spi.Page;
+import io.prestosql.spi.PageBuilder;
+import io.prestosql.spi.connector.ConnectorPageSource;
+import io.prestosql.spi.type.Type;
+import io.prestosql.spi.type.TypeUtils;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Columnar page source, decode cells of each Result directly into the BlockBuilders of a page
+ * rather than going through the row-at-a-time RecordCursor api.
+ * Scan, client side scan and batch get are all supported, HBaseRecordCursor is only used to fetch Results.
+ * Scans can be prefetched by HBaseResultPrefetcher, then the driver thread is released by isBlocked()
+ * instead of waiting for scanner RPCs.
+ */
+public class HBasePageSource implements ConnectorPageSource {
+
+    private static final Logger log = Logger.get(HBasePageSource.class);
+
+    private static final int ROWS_PER_REQUEST = 4096;
+
+    private final HBaseRecordCursor cursor;
+    private final List<Type> columnTypes;
+    private final PageBuilder pageBuilder;
+
+    private final HBaseColumnLookup columnLookup;
+    private final int[] rowKeyChannels;
+    private final int[] componentChannels;
+    private final int[] timestampChannels;
+    private final boolean[] channelWritten;
+    private final BlockSink blockSink = new BlockSink();
+
+    private final HBaseResultPrefetcher prefetcher;
+    private Iterator<Result> currentBatch = Collections.emptyIterator();
+
+    private boolean finished;
+
+    HBasePageSource(HBaseRecordSet recordSet) {
+        this(recordSet, null, 0, 0);
+    }
+
+    /**
+     * @param prefetchExecutor executor of the fetch thread, null if Results are fetched by the driver thread
+     * @param batchRows        rows of a prefetched batch
+     * @param queueSize        batches that can be prefetched
+     */
+    HBasePageSource(HBaseRecordSet recordSet, ExecutorService prefetchExecutor, int batchRows, int queueSize) {
+        Objects.requireNonNull(recordSet, "recordSet is null");
+        List<HBaseColumnHandle> columnHandles = recordSet.getColumnHandles();
+        this.columnTypes = columnHandles.stream().map(HBaseColumnHandle::getColumnType).collect(Collectors.toList());
+        this.pageBuilder = new PageBuilder(columnTypes);
+        this.channelWritten = new boolean[columnHandles.size()];
+
+        this.columnLookup = recordSet.getColumnLookup();
+        this.rowKeyChannels = columnLookup.getRowKeyChannels();
+        this.componentChannels = columnLookup.getRowKeyComponentChannels();
+        this.timestampChannels = columnLookup.getTimestampChannels();
+
+        // cursor() throws if the scanner or the connection of split can't be opened
+        this.cursor = (HBaseRecordCursor) recordSet.cursor();
+
+        // Batch get pipelines its own chunks of gets, nothing to prefetch
+        if (prefetchExecutor != null && !(cursor instanceof HBaseGetRecordCursor)) {
+            this.prefetcher = new HBaseResultPrefetcher(cursor, prefetchExecutor, batchRows, queueSize);
+        } else {
+            this.prefetcher = null;
+        }
+    }
+
+    @Override
+    public long getCompletedBytes() {
+        return cursor.getCompletedBytes();
+    }
+
+    @Override
+    public long getReadTimeNanos() {
+        return cursor.getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && pageBuilder.isEmpty();
+    }
+
+    @Override
+    public Page getNextPage() {
+        if (!finished) {
+            for (int i = 0; i < ROWS_PER_REQUEST && !pageBuilder.isFull(); i++) {
+                Result result = nextResult();
+                if (result == null) {
+                    // No prefetched batch or chunk of gets is ready yet, wait on isBlocked()
+                    finished = prefetcher == null ? cursor.isFinished() : prefetcher.isFinished();
+                    break;
+                }
+                appendRow(result);
+            }
+        }
+
+        // only return a page if the buffer is full or we are finishing
+        if (pageBuilder.isEmpty() || (!finished && !pageBuilder.isFull())) {
+            return null;
+        }
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    private Result nextResult() {
+        if (prefetcher == null) {
+            return cursor.getNextRecord();
+        }
+        if (!currentBatch.hasNext()) {
+            List<Result> batch = prefetcher.poll();
+            if (batch == null) {
+                return null;
+            }
+            currentBatch = batch.iterator();
+        }
+        return currentBatch.next();
+    }
+
+    @Override
+    public CompletableFuture<?> isBlocked() {
+        if (finished || currentBatch.hasNext()) {
+            return NOT_BLOCKED;
+        }
+        return prefetcher == null ? cursor.isBlocked() : prefetcher.isBlocked();
+    }
+
+    private void appendRow(Result result) {
+        pageBuilder.declarePosition();
+        // columnTypes will be empty if sql is like count(*)
+        if (columnTypes.isEmpty()) {
+            return;
+        }
+
+        Arrays.fill(channelWritten, false);
+        for (Cell cell : result.rawCells()) {
+            int channel = columnLookup.findChannel(cell);
+            if (channel == HBaseColumnLookup.NOT_FOUND || channelWritten[channel]) {
+                continue;
+            }
+            HBaseValueDecoder.decode(columnTypes.get(channel),
+                    cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(), channel, blockSink);
+            channelWritten[channel] = true;
+        }
+
+        // Handle the value of rowKey column
+        if (rowKeyChannels.length > 0) {
+            Cell cell = result.rawCells()[0];
+            for (int channel : rowKeyChannels) {
+                columnTypes.get(channel).writeSlice(pageBuilder.getBlockBuilder(channel),
+                        Slices.wrappedBuffer(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength()));
+                channelWritten[channel] = true;
+            }
+        }
+
+        // $timestamp is the latest write time of the cells of the row
+        if (timestampChannels.length > 0 && result.rawCells().length > 0) {
+            long timestamp = HBaseColumnLookup.getLatestTimestamp(result.rawCells());
+            for (int channel : timestampChannels) {
+                columnTypes.get(channel).writeLong(pageBuilder.getBlockBuilder(channel), timestamp);
+                channelWritten[channel] = true;
+            }
+        }
+
+        // Components of rowKey are decoded from their fields of the row
+        if (componentChannels.length > 0 && result.rawCells().length > 0) {
+            Cell cell = result.rawCells()[0];
+            for (int i = 0; i < componentChannels.length; i++) {
+                Object value = columnLookup.decodeRowKeyComponent(i,
+                        cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+                if (value != null) {
+                    int channel = componentChannels[i];
+                    TypeUtils.writeNativeValue(columnTypes.get(channel), pageBuilder.getBlockBuilder(channel), value);
+                    channelWritten[channel] = true;
+                }
+            }
+        }
+
+        // Columns which this row doesn't have
+        for (int channel = 0; channel < channelWritten.length; channel++) {
+            if (!channelWritten[channel]) {
+                pageBuilder.getBlockBuilder(channel).appendNull();
+            }
+        }
+    }
+
+    /**
+     * Writes the values decoded by HBaseValueDecoder into the block builders of the current page
+     */
+    private class BlockSink implements HBaseValueDecoder.Sink {
+        @Override
+        public void setNull(int channel) {
+            pageBuilder.getBlockBuilder(channel).appendNull();
+        }
+
+        @Override
+        public void setBoolean(int channel, boolean value) {
+            columnTypes.get(channel).writeBoolean(pageBuilder.getBlockBuilder(channel), value);
+        }
+
+        @Override
+        public void setLong(int channel, long value) {
+            columnTypes.get(channel).writeLong(pageBuilder.getBlockBuilder(channel), value);
+        }
+
+        @Override
+        public void setDouble(int channel, double value) {
+            columnTypes.get(channel).writeDouble(pageBuilder.getBlockBuilder(channel), value);
+        }
+
+        @Override
+        public void setSlice(int channel, Slice value) {
+            columnTypes.get(channel).writeSlice(pageBuilder.getBlockBuilder(channel), value);
+        }
+
+        @Override
+        public void setArray(int channel, Slice value) {
+            HBaseValueDecoder.writeArray(columnTypes.get(channel), pageBuilder.getBlockBuilder(channel), value);
+        }
+    }
+
+    @Override
+    public long getSystemMemoryUsage() {
+        return cursor.getSystemMemoryUsage() + pageBuilder.getSizeInBytes()
+                + (prefetcher == null ? 0L : prefetcher.getBufferedBytes());
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        try {
+            if (prefetcher != null) {
+                prefetcher.close();
+            } else {
+                cursor.close();
+            }
+        } catch (Exception e) {
+            log.error(e, e.getMessage());
+        }
+    }
+}
@@ -18,14 +18,19 @@ package com.analysys.presto.connector.hbase.query;
 
 import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.analysys.presto.connector.hbase.meta.HBaseConfig;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.prestosql.spi.connector.*;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * HBase delete function interface provider
+ * HBase page source provider, also provides the delete function interface
  *
  * @author wupeng
  * @date 2019/09/04
@@ -34,11 +39,31 @@ public class HBasePageSourceProvider implements ConnectorPageSourceProvider {
 
     private HBaseRecordSetProvider recordSetProvider;
     private HBaseClientManager hbaseClientManager;
+    private HBaseConfig config;
+    private HBaseStats stats;
+
+    /**
+     * Threads that fetch Results ahead of the driver threads when scan prefetch is enabled,
+     * bounded by scan-prefetch-threads, splits beyond it wait for a thread
+     */
+    private final ExecutorService prefetchExecutor;
 
     @Inject
-    public HBasePageSourceProvider(HBaseRecordSetProvider recordSetProvider, HBaseClientManager hbaseClientManager) {
+    public HBasePageSourceProvider(HBaseRecordSetProvider recordSetProvider,
+                                   HBaseClientManager hbaseClientManager,
+                                   HBaseConfig config,
+                                   HBaseStats stats) {
         this.recordSetProvider = requireNonNull(recordSetProvider, "recordSetProvider is null");
         this.hbaseClientManager = requireNonNull(hbaseClientManager, "hbaseClientManager is null");
+        this.config = requireNonNull(config, "config is null");
+        this.stats = requireNonNull(stats, "stats is null");
+        this.prefetchExecutor = Executors.newFixedThreadPool(config.getScanPrefetchThreads(),
+                new ThreadFactoryBuilder().setNameFormat("hbase-scan-prefetch-%s").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        prefetchExecutor.shutdownNow();
     }
 
     @Override
@@ -48,10 +73,14 @@ public class HBasePageSourceProvider implements ConnectorPageSourceProvider {
                                                 ConnectorTableHandle table,
                                                 List<ColumnHandle> columns) {
         HBaseRecordSet recordSet = (HBaseRecordSet) recordSetProvider.getRecordSet(transactionHandle, session, split, table, columns);
+        HBasePageSource pageSource = config.isEnableScanPrefetch()
+                ? new HBasePageSource(recordSet, prefetchExecutor,
+                config.getScanPrefetchBatchRows(), config.getScanPrefetchQueueSize())
+                : new HBasePageSource(recordSet);
         if (columns.stream().anyMatch(ch -> ((HBaseColumnHandle) ch).isRowKey())) {
-            return new HBaseUpdatablePageSource(recordSet, hbaseClientManager);
+            return new HBaseUpdatablePageSource(recordSet, pageSource, hbaseClientManager, stats);
         } else {
-            return new RecordPageSource(recordSet);
+            return pageSource;
         }
     }
 }
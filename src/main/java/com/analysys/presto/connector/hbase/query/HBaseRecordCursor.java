@@ -15,7 +15,6 @@ package com.analysys.presto.connector.hbase.query;
 
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
-import com.analysys.presto.connector.hbase.utils.Constant;
 import com.google.common.base.Preconditions;
 import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
@@ -26,17 +25,11 @@ import io.prestosql.spi.connector.RecordCursor;
 import io.prestosql.spi.type.*;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Result;
-import org.apache.hadoop.hbase.util.Bytes;
-import java.math.BigDecimal;
-import java.util.HashMap;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import static com.analysys.presto.connector.hbase.utils.Constant.*;
-import static com.analysys.presto.connector.hbase.utils.Utils.arrayCopy;
 import static io.prestosql.spi.type.DoubleType.DOUBLE;
-import static io.prestosql.spi.type.IntegerType.INTEGER;
-import static io.prestosql.spi.type.TimestampType.TIMESTAMP;
 
 /**
  * HBase record cursor fetch record in split
@@ -44,17 +37,27 @@ import static io.prestosql.spi.type.TimestampType.TIMESTAMP;
  * @author wupeng
  * @date 2019/01/29
  */
-public class HBaseRecordCursor implements RecordCursor {
+public abstract class HBaseRecordCursor implements RecordCursor {
 
     private static final Logger log = Logger.get(HBaseRecordCursor.class);
     private static final int MAX_BLOCK_SIZE = 1024 * 1024;
+    static final CompletableFuture<?> NOT_BLOCKED = CompletableFuture.completedFuture(null);
 
     List<HBaseColumnHandle> columnHandles;
 
-    long totalBytes;
-    Object[] fields;
-    Map<Integer, Integer> ordinalPositionAndFieldsIndexMap = new HashMap<>();
-    Map<Integer, HBaseColumnHandle> fieldIndexMap = null;
+    /**
+     * Written by the fetch thread of a prefetched scan and read by the driver thread
+     */
+    volatile long totalBytes;
+    /**
+     * Wall time spent waiting for HBase, such as scanner RPCs, multi get and reading HFiles
+     */
+    volatile long readTimeNanos;
+
+    HBaseStats stats;
+    private boolean statsRecorded = false;
+    HBaseRowBuffer rowBuffer;
+    HBaseColumnLookup columnLookup = null;
 
     public HBaseSplit split;
 
@@ -72,57 +75,45 @@ public class HBaseRecordCursor implements RecordCursor {
     }
 
     /**
-     * We store the column value in HBase like Bytes.toBytes(value) rather than Bytes.toBytes(value.toString)
+     * Fetch the next Result of this split, HBasePageSource decodes it into blocks directly.
      *
-     * @param type  type
-     * @param value value
-     * @return object
+     * @return next Result, null if there is no more data
      */
-    Object matchValue(Type type, byte[] value) {
-        if (type == null) {
-            return Bytes.toString(value);
-        }
+    abstract Result getNextRecord();
 
-        Class typeClass = type.getClass();
-        // return null if value is null
-        // || (For varchar type if length is 0, return value is Bytes.toString(value), this will return "")
-        // beside varchar type if length is 0, the value will be null
-        if (value == null) {
-            return null;
-        }
-        if (value.length == 0 && !typeClass.equals(VARCHAR_CLASS)) {
-            return null;
-        }
+    /**
+     * @return true if getNextRecord returned null because there is no more data,
+     * false if the next Results are still being fetched, see isBlocked.
+     * Cursors that fetch synchronously only return null at the end.
+     */
+    boolean isFinished() {
+        return true;
+    }
 
-        if (typeClass.equals(VARCHAR_CLASS)) {
-            return Bytes.toString(value);
-        } else if (typeClass.equals(INTEGER_CLASS)) {
-            return Bytes.toInt(value);
-        } else if (typeClass.equals(BIGINT_CLASS)) {
-            return Bytes.toLong(value);
-        } else if (typeClass.equals(DOUBLE_CLASS)) {
-            return Bytes.toDouble(value);
-        } else if (typeClass.equals(TIMESTAMP_CLASS)) {
-            return Bytes.toLong(value);
-        } else if (typeClass.equals(BOOLEAN_CLASS)) {
-            // 0: false, 1: true
-            return Bytes.toInt(value);
-        } else if (type.getClass().getSuperclass().equals(DecimalType.class)) {
-            return Bytes.toBigDecimal(value);
-        } else {
-            return Bytes.toString(value);
-        }
+    /**
+     * @return future that completes when getNextRecord can return the next Result without waiting
+     */
+    CompletableFuture<?> isBlocked() {
+        return NOT_BLOCKED;
     }
 
-    private Object getFieldValue(int field) {
-        /*Preconditions.checkState(ordinalPositionAndFieldsIndexMap.containsKey(columnHandles.get(field).getOrdinalPosition()),
-                String.format("Cannot find the value of field index %d, field array is %s, split=%s",
-                        field, Arrays.toString(fields), split.toString()));*/
-        if (ordinalPositionAndFieldsIndexMap.containsKey(columnHandles.get(field).getOrdinalPosition())) {
-            return fields[ordinalPositionAndFieldsIndexMap.get(columnHandles.get(field).getOrdinalPosition())];
-        } else {
-            return null;
+    /**
+     * Decode the cells of record into rowBuffer, fields which this row doesn't have are left null.
+     *
+     * @param record record
+     */
+    void fillRow(Result record) {
+        rowBuffer.reset();
+        for (Cell cell : record.rawCells()) {
+            int channel = columnLookup.findChannel(cell);
+            if (channel == HBaseColumnLookup.NOT_FOUND || !rowBuffer.isNull(channel)) {
+                continue;
+            }
+            HBaseValueDecoder.decode(columnHandles.get(channel).getColumnType(),
+                    cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(), channel, rowBuffer);
         }
+        // Handle the value of rowKey column
+        setRowKeyValue2FieldsAry(record);
     }
 
     /**
@@ -134,90 +125,39 @@ public class HBaseRecordCursor implements RecordCursor {
     @Override
     public boolean getBoolean(int field) {
         this.checkFieldType(field, BooleanType.BOOLEAN);
-        return (Integer) this.getFieldValue(field) == 1;
+        return rowBuffer.getLong(field) == 1;
     }
 
     @Override
     public long getLong(int field) {
-        Type type = this.getType(field);
-        Object value = this.getFieldValue(field);
-        Class typeClass = type.getClass();
-        if (typeClass.equals(INTEGER.getClass())) {
-            return (Integer) value;
-        } else if (typeClass.equals(SmallintType.SMALLINT.getClass())) {
-            return (Short) value;
-        }
-        // We don't support timestamp at current version, we use long instead of timestamp
-        // so this elseif could be removed now
-        else if (typeClass.equals(TIMESTAMP.getClass())) {
-            try {
-                return (Long) value;
-            } catch (Exception e) {
-                log.error(e, e.getMessage());
-                this.close();
-                return 0;
-            }
-        }
-        // When the precision of decimal <= 18(Type is ShortDecimalType) getLong method will be executed.
-        else if (typeClass.getSuperclass().equals(DecimalType.class)) {
-            DecimalType dType = (DecimalType) type;
-            if (dType.isShort()) {
-                return ((BigDecimal) value).unscaledValue().longValue();
-            } else {
-                return ((BigDecimal) value).unscaledValue().longValue();
-            }
-        } else {
-            return (Long) value;
-        }
+        return rowBuffer.getLong(field);
     }
 
     @Override
     public double getDouble(int field) {
         this.checkFieldType(field, DOUBLE);
-        return (Double) this.getFieldValue(field);
+        return rowBuffer.getDouble(field);
     }
 
     @Override
     public Slice getSlice(int field) {
-        Object value = this.getFieldValue(field);
-        if (value == null) {
-            return null;
-        }
-        Type type = this.getType(field);
-        if (type instanceof VarcharType) {
-            return Slices.utf8Slice((String) value);
-        } else if (type instanceof VarbinaryType) {
-            return Slices.utf8Slice(value.toString());
-        } else if (type instanceof DecimalType) {
-            BigDecimal dec = (BigDecimal) value;
-            return Decimals.encodeScaledValue(dec);
-        } else {
-            throw new IllegalStateException("getSlice not implemented for " + type
-                    + ", type.class=" + type.getClass() + ", value=" + value);
-        }
+        return rowBuffer.getSlice(field);
     }
 
     @Override
     public Object getObject(int field) {
-        Object fieldValue;
-        Type type;
-        PageBuilderStatus pageBuilderStatus = new PageBuilderStatus(MAX_BLOCK_SIZE);
-        type = this.getType(field);
-        fieldValue = this.getFieldValue(field);
-        if (fieldValue == null || "".equals(fieldValue)) {
-            return this.getType(field).createBlockBuilder(pageBuilderStatus.createBlockBuilderStatus(), 0).build();
+        Type type = this.getType(field);
+        Slice fieldValue = rowBuffer.getSlice(field);
+        if (fieldValue == null || fieldValue.length() == 0) {
+            PageBuilderStatus pageBuilderStatus = new PageBuilderStatus(MAX_BLOCK_SIZE);
+            return type.createBlockBuilder(pageBuilderStatus.createBlockBuilderStatus(), 0).build();
         }
 
         if (type.getTypeSignature().getBase().equals(StandardTypes.ARRAY)) {
-            String[] values = ((String) fieldValue).split(Constant.ARRAY_STRING_SPLITTER);
-            Type elementType = type.getTypeParameters().get(0);
-            BlockBuilder builder = elementType.createBlockBuilder(null, values.length);
-            for (String value : values) {
-                if (value != null && !"".equals(value)) {
-                    TypeUtils.writeNativeValue(elementType, builder, value);
-                }
-            }
-            return builder.build();
+            // Array values are kept raw in the row, they are only split when asked for
+            BlockBuilder builder = type.createBlockBuilder(null, 1);
+            HBaseValueDecoder.writeArray(type, builder, fieldValue);
+            return type.getObject(builder.build(), 0);
         } else {
             throw new UnsupportedOperationException("OOPS！UNSUPPORTED TYPE：" + type.getDisplayName());
         }
@@ -232,8 +172,7 @@ public class HBaseRecordCursor implements RecordCursor {
     @Override
     public boolean isNull(int field) {
         Preconditions.checkArgument(field < this.columnHandles.size(), "Invalid field index");
-        Object value = this.getFieldValue(field);
-        return value == null;
+        return rowBuffer.isNull(field);
     }
 
     private void checkFieldType(int field, Type expected) {
@@ -242,19 +181,59 @@ public class HBaseRecordCursor implements RecordCursor {
                 expected, actual);
     }
 
-    void setRowKeyValue2FieldsAry(Result record, int fieldIndex) {
+    private void setRowKeyValue2FieldsAry(Result record) {
         // Handle the value of rowKey
         // Check out whether columns to be queried contain rowKey field
-        if (fieldIndexMap.containsKey(this.rowKeyColName.hashCode())) {
+        int[] rowKeyChannels = columnLookup.getRowKeyChannels();
+        if (rowKeyChannels.length > 0) {
             if (record.rawCells() != null && record.rawCells().length > 0) {
                 Cell cell = record.rawCells()[0];
-                HBaseColumnHandle rowKeyHandle = fieldIndexMap.get(rowKeyColName.hashCode());
-                String rowKeyValue = Bytes.toString(
-                        arrayCopy(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength()));
-                fields[fieldIndex] = rowKeyValue;
-                ordinalPositionAndFieldsIndexMap.put(rowKeyHandle.getOrdinalPosition(), fieldIndex);
+                Slice rowKeyValue = Slices.wrappedBuffer(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+                for (int channel : rowKeyChannels) {
+                    rowBuffer.setSlice(channel, rowKeyValue);
+                }
             }
         }
+        // $timestamp is the latest write time of the cells of the row
+        int[] timestampChannels = columnLookup.getTimestampChannels();
+        if (timestampChannels.length > 0 && record.rawCells() != null && record.rawCells().length > 0) {
+            long timestamp = HBaseColumnLookup.getLatestTimestamp(record.rawCells());
+            for (int channel : timestampChannels) {
+                rowBuffer.setLong(channel, timestamp);
+            }
+        }
+        // Components of rowKey are decoded from their fields of the row
+        int[] componentChannels = columnLookup.getRowKeyComponentChannels();
+        if (componentChannels.length > 0 && record.rawCells() != null && record.rawCells().length > 0) {
+            Cell cell = record.rawCells()[0];
+            for (int i = 0; i < componentChannels.length; i++) {
+                Object value = columnLookup.decodeRowKeyComponent(i,
+                        cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+                if (value instanceof Slice) {
+                    rowBuffer.setSlice(componentChannels[i], (Slice) value);
+                } else if (value instanceof Long) {
+                    rowBuffer.setLong(componentChannels[i], (Long) value);
+                } else if (value instanceof Double) {
+                    rowBuffer.setDouble(componentChannels[i], (Double) value);
+                } else if (value instanceof Boolean) {
+                    rowBuffer.setBoolean(componentChannels[i], (Boolean) value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the statistics of this cursor once, cursors can be closed more than once.
+     *
+     * @param mode    access mode
+     * @param metrics scan metrics, null if this is not a scan
+     */
+    void recordScanStats(HBaseStats.AccessMode mode, ScanMetrics metrics) {
+        if (stats == null || statsRecorded) {
+            return;
+        }
+        statsRecorded = true;
+        stats.recordScan(split.getSchemaName() + ":" + split.getTableName(), mode, metrics, recordCount, totalBytes);
     }
 
     @Override
@@ -270,7 +249,7 @@ public class HBaseRecordCursor implements RecordCursor {
 
     @Override
     public long getReadTimeNanos() {
-        return 0L;
+        return this.readTimeNanos;
     }
 
     @Override
@@ -14,33 +14,37 @@
 package com.analysys.presto.connector.hbase.query;
 
 import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotCache;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
 import com.analysys.presto.connector.hbase.meta.HBaseConfig;
-import com.analysys.presto.connector.hbase.schedule.ConditionInfo;
+import com.analysys.presto.connector.hbase.schedule.FuzzyRowKey;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
 import com.analysys.presto.connector.hbase.utils.Utils;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.log.Logger;
+import io.prestosql.spi.PrestoException;
 import io.prestosql.spi.connector.ColumnHandle;
 import io.prestosql.spi.connector.RecordCursor;
 import io.prestosql.spi.connector.RecordSet;
+import io.prestosql.spi.predicate.TupleDomain;
 import io.prestosql.spi.type.Type;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.filter.*;
-import org.apache.hadoop.hbase.shaded.protobuf.generated.SnapshotProtos;
-import org.apache.hadoop.hbase.snapshot.SnapshotDescriptionUtils;
-import org.apache.hadoop.hbase.snapshot.SnapshotManifest;
+import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hdfs.protocol.AlreadyBeingCreatedException;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+
 /**
  * HBase record set
  *
@@ -55,23 +59,35 @@ public class HBaseRecordSet implements RecordSet {
     private final List<Type> columnTypes;
     private final HBaseSplit hBaseSplit;
     private ResultScanner resultScanner;
-    private Connection connection;
-    private Map<Integer, HBaseColumnHandle> fieldIndexMap = new HashMap<>();
+    private final HBaseColumnLookup columnLookup;
     private HBaseConfig config;
-
-    HBaseRecordSet(HBaseSplit split, List<ColumnHandle> columnHandles, HBaseClientManager clientManager) {
+    private final HBaseClientManager clientManager;
+    private final HBaseScanBatchSizer batchSizer;
+    private final String batchSizeKey;
+    private final HBaseStats stats;
+    private final HBaseSnapshotCache snapshotCache;
+    private final TupleDomain<ColumnHandle> constraint;
+    private final Optional<TimeRange> timeRange;
+
+    HBaseRecordSet(HBaseSplit split, List<ColumnHandle> columnHandles, TupleDomain<ColumnHandle> constraint,
+                   HBaseClientManager clientManager, HBaseScanBatchSizer batchSizer, HBaseStats stats,
+                   HBaseSnapshotCache snapshotCache) {
         this.hBaseSplit = Objects.requireNonNull(split, "split is null");
-        Objects.requireNonNull(clientManager, "clientManager is null");
+        this.constraint = Objects.requireNonNull(constraint, "constraint is null");
+        this.clientManager = Objects.requireNonNull(clientManager, "clientManager is null");
         this.config = clientManager.getConfig();
 
         Objects.requireNonNull(columnHandles, "column handles is null");
         this.columnHandles = columnHandles.stream().map(ch -> (HBaseColumnHandle) ch).collect(Collectors.toList());
-        this.initFieldIndexMap(this.columnHandles);
+        this.columnLookup = new HBaseColumnLookup(this.columnHandles, split.getRowKeyName());
+        this.timeRange = HBaseFilterCompiler.compileTimeRange(constraint, this.columnHandles);
+        this.batchSizer = Objects.requireNonNull(batchSizer, "batchSizer is null");
+        this.batchSizeKey = HBaseScanBatchSizer.key(split, this.columnHandles);
+        this.stats = Objects.requireNonNull(stats, "stats is null");
+        this.snapshotCache = Objects.requireNonNull(snapshotCache, "snapshotCache is null");
 
         this.columnTypes = columnHandles.stream().map(ch -> ((HBaseColumnHandle) ch).getColumnType())
                 .collect(Collectors.toList());
-
-        this.connection = clientManager.createConnection();
     }
 
     @Override
@@ -81,27 +97,27 @@ public class HBaseRecordSet implements RecordSet {
 
     @Override
     public RecordCursor cursor() {
-        try (Table table = connection
-                .getTable(TableName.valueOf(
-                        hBaseSplit.getSchemaName() + ":" + hBaseSplit.getTableName()))) {
+        String tableName = hBaseSplit.getSchemaName() + ":" + hBaseSplit.getTableName();
+        try {
             // Check out if this is batch get
             if (Utils.isBatchGet(this.hBaseSplit.getConstraint(), hBaseSplit.getRowKeyName())) {
                 return new HBaseGetRecordCursor(this.columnHandles,
-                        this.hBaseSplit, this.fieldIndexMap, this.connection);
+                        this.hBaseSplit, this.columnLookup, this.stats, this.timeRange.orElse(null),
+                        clientManager.getAsyncConnection(),
+                        config.getBatchGetChunkSize(), config.getBatchGetMaxInFlightChunks());
             }
             // client side region scanner
             else if (this.hBaseSplit.getRegionInfo() != null) {
                 Scan scan = getScanFromPrestoConstraint();
                 long startTime = System.currentTimeMillis();
-                Configuration conf = Utils.getHadoopConf(config.getHbaseZookeeperQuorum(), config.getZookeeperClientPort());
-                Path root = new Path(config.getHbaseRootDir());
-                FileSystem fs = FileSystem.get(conf);
-                Path snapshotDir = SnapshotDescriptionUtils.getCompletedSnapshotDir(hBaseSplit.getSnapshotName(), root);
-                SnapshotProtos.SnapshotDescription snapshotDesc = SnapshotDescriptionUtils.readSnapshotInfo(fs, snapshotDir);
-                SnapshotManifest manifest = SnapshotManifest.open(conf, fs, snapshotDir, snapshotDesc);
-                List<RegionInfo> regionInfos = Utils.getRegionInfosFromManifest(manifest);
-                TableDescriptor htd = manifest.getTableDescriptor();
+                Configuration conf = snapshotCache.getConfiguration();
+                Path root = snapshotCache.getRootDir();
+                FileSystem fs = snapshotCache.getFileSystem();
+                HBaseSnapshotCache.SnapshotFiles snapshot = snapshotCache.getSnapshot(hBaseSplit.getSnapshotName());
+                List<RegionInfo> regionInfos = snapshot.getRegions();
+                TableDescriptor htd = snapshot.getTableDescriptor();
                 ClientSideRegionScanner scanner;
+                long openStart = System.nanoTime();
                 try {
                     scanner = new ClientSideRegionScanner(conf, fs, root, htd, regionInfos.get(hBaseSplit.getRegionIndex()), scan, null);
                 } catch (AlreadyBeingCreatedException abce) {
@@ -115,41 +131,44 @@ public class HBaseRecordSet implements RecordSet {
                     scanner = createClientSideRegionScannerWithExceptionHandle(conf, fs, root, htd, regionInfos.get(hBaseSplit.getRegionIndex()), scan);
                 }
                 if (scanner == null) {
-                    log.error("ClientSideRegionScanner: Create scanner failed!");
+                    // failure is recorded below, a split without its scanner must fail rather than return no rows
+                    throw new PrestoException(GENERIC_INTERNAL_ERROR, "Create ClientSideRegionScanner of "
+                            + tableName + " region " + hBaseSplit.getRegionIndex() + " failed");
                 }
+                stats.recordScannerOpen(tableName, HBaseStats.AccessMode.CLIENT_SIDE_SCAN,
+                        System.nanoTime() - openStart);
                 log.info("Get regionInfo by regionIndex{ " + hBaseSplit.getRegionIndex()
                         + " }, used " + (System.currentTimeMillis() - startTime) + " mill seconds.");
                 return new HBaseScanRecordCursorClientSide(this.columnHandles,
-                        this.hBaseSplit, scanner, this.fieldIndexMap, connection);
+                        this.hBaseSplit, scanner, this.columnLookup, this.stats);
             }
-            // Normal scan
+            // Normal scan, the only access that reads through a Table
             else {
                 Scan scan = getScanFromPrestoConstraint();
-                if (table != null) {
+                try (Table table = clientManager.borrowTable(hBaseSplit.getSchemaName(), hBaseSplit.getTableName())) {
+                    long openStart = System.nanoTime();
                     this.resultScanner = table.getScanner(scan);
+                    stats.recordScannerOpen(tableName, HBaseStats.AccessMode.SCAN, System.nanoTime() - openStart);
                 }
                 return new HBaseScanRecordCursor(this.columnHandles, this.hBaseSplit,
-                        this.resultScanner, this.fieldIndexMap, this.connection);
+                        this.resultScanner, this.columnLookup, this.batchSizer, this.batchSizeKey, this.stats);
             }
         } catch (Exception ex) {
             log.error(ex, ex.getMessage());
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                }
-            }
-            return null;
-        } /*if we close the connection here, table object will be unusable
-        finally {
-            if (connection != null)
-                try {
-                    connection.close();
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                }
-        }*/
+            stats.recordFailure(tableName, getAccessMode());
+            throwIfInstanceOf(ex, PrestoException.class);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Open cursor of " + tableName + " failed", ex);
+        }
+    }
+
+    private HBaseStats.AccessMode getAccessMode() {
+        if (Utils.isBatchGet(this.hBaseSplit.getConstraint(), hBaseSplit.getRowKeyName())) {
+            return HBaseStats.AccessMode.BATCH_GET;
+        } else if (this.hBaseSplit.getRegionInfo() != null) {
+            return HBaseStats.AccessMode.CLIENT_SIDE_SCAN;
+        } else {
+            return HBaseStats.AccessMode.SCAN;
+        }
     }
 
     private ClientSideRegionScanner createClientSideRegionScannerWithExceptionHandle(
@@ -163,52 +182,23 @@ public class HBaseRecordSet implements RecordSet {
         }
     }
 
-    private Filter getFilter(ConditionInfo condition) {
-        CompareFilter.CompareOp operator;
-        switch (condition.getOperator()) {
-            case GT:
-                operator = CompareFilter.CompareOp.GREATER;
-                break;
-            case GE:
-                operator = CompareFilter.CompareOp.GREATER_OR_EQUAL;
-                break;
-            case LT:
-                operator = CompareFilter.CompareOp.LESS;
-                break;
-            case LE:
-                operator = CompareFilter.CompareOp.LESS_OR_EQUAL;
-                break;
-            default:
-                operator = CompareFilter.CompareOp.EQUAL;
-                break;
-        }
-        SingleColumnValueFilter f = new SingleColumnValueFilter(
-                Bytes.toBytes(getFamilyByColumnName(condition.getColName(), columnHandles)),
-                Bytes.toBytes(condition.getColName()), operator,
-                condition.valueToBytes());
-        f.setFilterIfMissing(true);
-        return f;
-    }
-
-    private String getFamilyByColumnName(String columnName, List<HBaseColumnHandle> columns) {
-        Objects.requireNonNull(columnName, "column name is null");
-        HBaseColumnHandle column = columns.stream()
-                .filter(col -> columnName.equals(col.getColumnName())).findAny().orElse(null);
-        if (column != null) {
-            return column.getFamily();
-        } else {
-            return "unknown_family";
-        }
-    }
-
-    private Scan getScanFromPrestoConstraint() {
-        Scan scan = new Scan().setCaching(10000);
+    private Scan getScanFromPrestoConstraint() throws IOException {
+        Scan scan = new Scan();
+        // Rows of each RPC follow the memory budget of split and the observed row size.
+        // We never set batch, every Result must be a whole row to be decoded
+        batchSizer.configure(scan, batchSizeKey, columnHandles);
         scan.setLoadColumnFamiliesOnDemand(true);
         scan.setCacheBlocks(true);
+        // RPC count, regions and bytes of this scan are collected into HBaseStats
+        scan.setScanMetricsEnabled(true);
 
         // Filter the exactly columns we want
         // for (HBaseColumnHandle hch : this.columnHandles) {
         this.columnHandles.forEach(hch -> {
+            // rowKey components have no cells, they are decoded from the row, $timestamp is read from the cells
+            if (hch.isRowKeyComponent() || hch.isTimestamp()) {
+                return;
+            }
             if (this.hBaseSplit.getRowKeyName() == null) {
                 scan.addColumn(
                         Bytes.toBytes(hch.getFamily()), Bytes.toBytes(hch.getColumnName()));
@@ -222,48 +212,62 @@ public class HBaseRecordSet implements RecordSet {
 
         FilterList allFilters = new FilterList(FilterList.Operator.MUST_PASS_ALL);
 
+        // Many narrow rowKey ranges are scanned by this one scanner,
+        // MultiRowRangeFilter seeks to the next range instead of reading the rows between them
+        if (hBaseSplit.getRowKeyRanges().size() > 1) {
+            allFilters.addFilter(new MultiRowRangeFilter(hBaseSplit.getRowKeyRanges().stream()
+                    .map(range -> new MultiRowRangeFilter.RowRange(
+                            range.getStartRow(), true, range.getEndRow(), false))
+                    .collect(Collectors.toList())));
+        }
+        // Fixed width fields of rowKey are matched by the region server, which seeks to the next row that can match
+        if (!hBaseSplit.getFuzzyRowKeys().isEmpty()) {
+            allFilters.addFilter(new FuzzyRowFilter(hBaseSplit.getFuzzyRowKeys().stream()
+                    .map(FuzzyRowKey::toPair)
+                    .collect(Collectors.toList())));
+        }
+
         // ---------- Constraint push down ----------
         // This means user sql is like below:
         // select count(rowKey) / rowKey from table_xxx;
+        // or only queries the components of rowKey,
         // So we add FirstKeyOnlyFilter to return the first column to get the rowKey
-        if (this.columnHandles.size() == 1
-                && this.columnHandles.get(0).getColumnName().equals(this.hBaseSplit.getRowKeyName())) {
+        if (!this.columnHandles.isEmpty() && this.columnHandles.stream().allMatch(hch -> hch.isRowKeyComponent()
+                || hch.getColumnName().equals(this.hBaseSplit.getRowKeyName()))) {
             allFilters.addFilter(new FirstKeyOnlyFilter());
-            scan.setFilter(allFilters);
         } else {
-            Map<String, List<ConditionInfo>> conditions = hBaseSplit.getConstraint().stream()
-                    .collect(Collectors.groupingBy(ConditionInfo::getColName));
-            // Here is what kind of condition presto can give to us:
-            // 1.There can only be an 'and' relationship between different columns
-            // 2.The same column can only be an 'or' relationship
-            for (Map.Entry<String, List<ConditionInfo>> entry : conditions.entrySet()) {
-                // Same column
-                if (entry.getValue().size() > 1) {
-                    List<Filter> columnFilterList = entry.getValue().stream().map(this::getFilter)
-                            .collect(Collectors.toList());
-                    FilterList columnFilter = new FilterList(FilterList.Operator.MUST_PASS_ONE, columnFilterList);
-                    allFilters.addFilter(columnFilter);
-                }
-                // different columns
-                else {
-                    allFilters.addFilter(getFilter(entry.getValue().get(0)));
-                }
-            }
-            if (hBaseSplit.getConstraint().size() >= 1) {
-                scan.setFilter(allFilters);
-            }
+            // Domains of the columns read by this scan are compiled into value filters,
+            // rowKey and its components are not columns, their predicates are the rowKey ranges of split
+            HBaseFilterCompiler.compile(constraint, ImmutableSet.copyOf(columnHandles))
+                    .ifPresent(allFilters::addFilter);
+        }
+        if (!allFilters.getFilters().isEmpty()) {
+            scan.setFilter(allFilters);
         }
         // ---------- Constraint push down finished ----------
 
-        if (hBaseSplit.getStartRow() != null && hBaseSplit.getEndRow() != null) {
-            scan.withStopRow(Bytes.toBytes(hBaseSplit.getEndRow()));
+        // Store files whose cells are all older than the time range of $timestamp are skipped,
+        // there is only a time range when no value column is read
+        if (timeRange.isPresent()) {
+            scan.setTimeRange(timeRange.get().getMin(), timeRange.get().getMax());
+        }
+
+        // the first and the last split of a region cut scan are open on one side
+        if (hBaseSplit.getStartRow() != null) {
             scan.withStartRow(Bytes.toBytes(hBaseSplit.getStartRow()));
         }
+        if (hBaseSplit.getEndRow() != null) {
+            scan.withStopRow(Bytes.toBytes(hBaseSplit.getEndRow()));
+        }
         return scan;
     }
 
-    private void initFieldIndexMap(List<HBaseColumnHandle> columnHandles) {
-        columnHandles.forEach(hch -> fieldIndexMap.put(hch.getColumnName().hashCode(), hch));
+    HBaseColumnLookup getColumnLookup() {
+        return columnLookup;
+    }
+
+    List<HBaseColumnHandle> getColumnHandles() {
+        return columnHandles;
     }
 
     HBaseSplit getHBaseSplit() {
@@ -14,8 +14,10 @@
 package com.analysys.presto.connector.hbase.query;
 
 import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotCache;
 import com.analysys.presto.connector.hbase.frame.HBaseConnectorId;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.analysys.presto.connector.hbase.meta.HBaseTableHandle;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -35,11 +37,19 @@ public class HBaseRecordSetProvider implements ConnectorRecordSetProvider {
 
     private final String connectorId;
     private final HBaseClientManager clientManager;
+    private final HBaseScanBatchSizer batchSizer;
+    private final HBaseStats stats;
+    private final HBaseSnapshotCache snapshotCache;
 
     @Inject
-    public HBaseRecordSetProvider(HBaseConnectorId connectorId, HBaseClientManager clientManager) {
+    public HBaseRecordSetProvider(HBaseConnectorId connectorId, HBaseClientManager clientManager,
+                                  HBaseScanBatchSizer batchSizer, HBaseStats stats,
+                                  HBaseSnapshotCache snapshotCache) {
         this.connectorId = (Objects.requireNonNull(connectorId, "connectorId is null")).toString();
         this.clientManager = Objects.requireNonNull(clientManager, "hBaseClient is null");
+        this.batchSizer = Objects.requireNonNull(batchSizer, "batchSizer is null");
+        this.stats = Objects.requireNonNull(stats, "stats is null");
+        this.snapshotCache = Objects.requireNonNull(snapshotCache, "snapshotCache is null");
     }
 
     @Override
@@ -57,6 +67,7 @@ public class HBaseRecordSetProvider implements ConnectorRecordSetProvider {
             HBaseColumnHandle hch = (HBaseColumnHandle) obj;
             handles.add(hch);
         }
-        return new HBaseRecordSet(hBaseSplit, handles.build(), this.clientManager);
+        return new HBaseRecordSet(hBaseSplit, handles.build(), ((HBaseTableHandle) table).getConstraint(),
+                this.clientManager, this.batchSizer, this.stats, this.snapshotCache);
     }
 }
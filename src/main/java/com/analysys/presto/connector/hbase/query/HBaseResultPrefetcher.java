@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import io.prestosql.spi.PrestoException;
+import org.apache.hadoop.hbase.client.Result;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fetch Results of a cursor on a thread of a shared pool, so the next batch is already in flight
+ * while the driver thread is decoding the current one.
+ * At most queueSize batches are buffered, the fetch task ends when the queue is full and is submitted again
+ * once the driver thread takes a batch, so a pool thread is never parked on a split that is not being read.
+ * The driver thread never waits, it gets a future from isBlocked() instead.
+ * A failure of the cursor is thrown by poll(), so a split never ends early without an error.
+ */
+class HBaseResultPrefetcher {
+
+    private static final CompletableFuture<?> NOT_BLOCKED = CompletableFuture.completedFuture(null);
+
+    private final HBaseRecordCursor cursor;
+    private final ExecutorService executor;
+    private final int batchRows;
+    private final BlockingQueue<List<Result>> batches;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private CompletableFuture<?> notEmpty = NOT_BLOCKED;
+    private volatile boolean fetchFinished;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private boolean cursorClosed;
+
+    private boolean fetchScheduled;
+    private Future<?> fetchTask;
+
+    HBaseResultPrefetcher(HBaseRecordCursor cursor, ExecutorService executor, int batchRows, int queueSize) {
+        this.cursor = requireNonNull(cursor, "cursor is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.batchRows = batchRows;
+        this.batches = new ArrayBlockingQueue<>(queueSize);
+        scheduleFetch();
+    }
+
+    private synchronized void scheduleFetch() {
+        if (fetchScheduled || fetchFinished || closed || batches.remainingCapacity() == 0) {
+            return;
+        }
+        fetchScheduled = true;
+        try {
+            fetchTask = executor.submit(this::fetch);
+        } catch (RejectedExecutionException e) {
+            fetchScheduled = false;
+            failure = e;
+            fetchFinished = true;
+            notEmpty.complete(null);
+        }
+    }
+
+    private void fetch() {
+        try {
+            // only this task adds batches, so there is room for the batch it fetches
+            while (!closed && batches.remainingCapacity() > 0) {
+                List<Result> batch = new ArrayList<>(batchRows);
+                long batchBytes = 0L;
+                boolean end = false;
+                while (batch.size() < batchRows) {
+                    Result result;
+                    // The cursor is not thread safe, close() must not run in the middle of a fetch
+                    synchronized (cursor) {
+                        result = cursorClosed ? null : cursor.getNextRecord();
+                    }
+                    if (result == null) {
+                        end = true;
+                        break;
+                    }
+                    batch.add(result);
+                    batchBytes += Result.getTotalSizeOfCells(result);
+                }
+                if (!batch.isEmpty()) {
+                    bufferedBytes.addAndGet(batchBytes);
+                    batches.add(batch);
+                    signal();
+                }
+                if (end) {
+                    fetchFinished = true;
+                    break;
+                }
+            }
+        } catch (Throwable e) {
+            if (!closed) {
+                failure = e;
+            }
+            fetchFinished = true;
+        } finally {
+            synchronized (this) {
+                fetchScheduled = false;
+            }
+            signal();
+            // the driver thread may have taken a batch after the queue was found full
+            scheduleFetch();
+        }
+    }
+
+    private synchronized void signal() {
+        notEmpty.complete(null);
+    }
+
+    /**
+     * @return next batch of Results, null if no batch is ready or there is no more data
+     * @throws PrestoException if the cursor failed to fetch Results
+     */
+    List<Result> poll() {
+        Throwable e = failure;
+        if (e != null) {
+            throwIfInstanceOf(e, PrestoException.class);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Fetch Results of split failed: " + e.getMessage(), e);
+        }
+        List<Result> batch = batches.poll();
+        if (batch != null) {
+            long batchBytes = 0L;
+            for (Result result : batch) {
+                batchBytes += Result.getTotalSizeOfCells(result);
+            }
+            bufferedBytes.addAndGet(-batchBytes);
+            scheduleFetch();
+        }
+        return batch;
+    }
+
+    /**
+     * @return true if all Results have been fetched and consumed
+     */
+    boolean isFinished() {
+        return fetchFinished && failure == null && batches.isEmpty();
+    }
+
+    synchronized CompletableFuture<?> isBlocked() {
+        if (!batches.isEmpty() || fetchFinished) {
+            return NOT_BLOCKED;
+        }
+        if (notEmpty.isDone()) {
+            notEmpty = new CompletableFuture<>();
+        }
+        return notEmpty;
+    }
+
+    /**
+     * @return bytes of the buffered Results
+     */
+    long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    void close() {
+        closed = true;
+        synchronized (this) {
+            if (fetchTask != null) {
+                fetchTask.cancel(true);
+            }
+        }
+        batches.clear();
+        synchronized (cursor) {
+            if (!cursorClosed) {
+                cursorClosed = true;
+                cursor.close();
+            }
+        }
+        signal();
+    }
+}
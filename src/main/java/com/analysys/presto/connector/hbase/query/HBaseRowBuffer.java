@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import io.airlift.slice.Slice;
+import java.util.Arrays;
+
+/**
+ * Values of the current row of HBaseRecordCursor, indexed by field.
+ * Each field is stored in a primitive lane according to its java type, so nothing is boxed,
+ * the buffer is created once per cursor and reset in place for every row.
+ * Booleans are kept in the long lane as 0 or 1, arrays in the slice lane as their raw value.
+ */
+class HBaseRowBuffer implements HBaseValueDecoder.Sink {
+
+    private final long[] longs;
+    private final double[] doubles;
+    private final Slice[] slices;
+    private final boolean[] nulls;
+
+    HBaseRowBuffer(int fieldCount) {
+        this.longs = new long[fieldCount];
+        this.doubles = new double[fieldCount];
+        this.slices = new Slice[fieldCount];
+        this.nulls = new boolean[fieldCount];
+        reset();
+    }
+
+    /**
+     * Mark all fields as null, values of the previous row are overwritten by the next one.
+     */
+    void reset() {
+        Arrays.fill(nulls, true);
+    }
+
+    @Override
+    public void setNull(int field) {
+        nulls[field] = true;
+    }
+
+    @Override
+    public void setBoolean(int field, boolean value) {
+        setLong(field, value ? 1L : 0L);
+    }
+
+    @Override
+    public void setLong(int field, long value) {
+        longs[field] = value;
+        nulls[field] = false;
+    }
+
+    @Override
+    public void setDouble(int field, double value) {
+        doubles[field] = value;
+        nulls[field] = false;
+    }
+
+    @Override
+    public void setSlice(int field, Slice value) {
+        slices[field] = value;
+        nulls[field] = false;
+    }
+
+    @Override
+    public void setArray(int field, Slice value) {
+        setSlice(field, value);
+    }
+
+    long getLong(int field) {
+        return longs[field];
+    }
+
+    double getDouble(int field) {
+        return doubles[field];
+    }
+
+    Slice getSlice(int field) {
+        return nulls[field] ? null : slices[field];
+    }
+
+    boolean isNull(int field) {
+        return nulls[field];
+    }
+}
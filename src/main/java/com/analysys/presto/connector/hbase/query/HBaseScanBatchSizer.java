@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.analysys.presto.connector.hbase.meta.HBaseConfig;
+import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
+import com.analysys.presto.connector.hbase.utils.Utils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.SCAN_ROW_SIZE_CACHE_MAX_SIZE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Size caching and maxResultSize of scan by the memory budget of a split.
+ * Rows per RPC start from an estimate of the projected column types, and then follow the bytes per row
+ * observed by the scans of the same table and projection, so every split which starts later uses the latest size.
+ */
+public class HBaseScanBatchSizer {
+
+    /**
+     * Observed bytes per row is reported to the sizer every this many rows
+     */
+    static final int OBSERVE_INTERVAL_ROWS = 1000;
+
+    private final long memoryBudget;
+    private final int minCaching;
+    private final int maxCaching;
+
+    /**
+     * Moving average bytes per row of each table and projection, at most SCAN_ROW_SIZE_CACHE_MAX_SIZE of them are kept
+     */
+    private final Cache<String, Long> observedBytesPerRow;
+
+    @Inject
+    public HBaseScanBatchSizer(HBaseConfig config) {
+        requireNonNull(config, "config is null");
+        this.memoryBudget = config.getScanMemoryBudget();
+        this.minCaching = config.getScanMinCaching();
+        this.maxCaching = config.getScanMaxCaching();
+        this.observedBytesPerRow = CacheBuilder.newBuilder()
+                .expireAfterAccess(config.getScanRowSizeTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(SCAN_ROW_SIZE_CACHE_MAX_SIZE)
+                .build();
+    }
+
+    /**
+     * @return key of the observations, scans of the same table and projection share it
+     */
+    static String key(HBaseSplit split, List<HBaseColumnHandle> columns) {
+        return split.getSchemaName() + ":" + split.getTableName() + columns.stream()
+                .map(hch -> hch.getFamily() + ":" + hch.getColumnName()).sorted()
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    void configure(Scan scan, String key, List<HBaseColumnHandle> columns) {
+        Long bytesPerRow = observedBytesPerRow.getIfPresent(key);
+        if (bytesPerRow == null || bytesPerRow <= 0) {
+            bytesPerRow = Utils.estimateBytesPerRow(columns);
+        }
+        scan.setCaching(getCaching(bytesPerRow));
+        scan.setMaxResultSize(memoryBudget);
+    }
+
+    int getCaching(long bytesPerRow) {
+        long caching = memoryBudget / Math.max(bytesPerRow, 1L);
+        return (int) Math.max(minCaching, Math.min(maxCaching, caching));
+    }
+
+    /**
+     * Record rows and bytes that a scan has read since its last report.
+     */
+    void observe(String key, long rows, long bytes) {
+        if (rows <= 0 || bytes <= 0) {
+            return;
+        }
+        long bytesPerRow = bytes / rows;
+        observedBytesPerRow.asMap().merge(key, bytesPerRow, (old, latest) -> (old * 3 + latest) / 4);
+    }
+}
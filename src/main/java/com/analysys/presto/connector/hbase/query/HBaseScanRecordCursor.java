@@ -16,16 +16,15 @@ package com.analysys.presto.connector.hbase.query;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
 import io.airlift.log.Logger;
-import org.apache.hadoop.hbase.Cell;
-import org.apache.hadoop.hbase.client.Connection;
+import io.prestosql.spi.PrestoException;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
-import org.apache.hadoop.hbase.util.Bytes;
 import java.net.InetAddress;
 import java.util.*;
 
 import static com.analysys.presto.connector.hbase.utils.Constant.SYSTEMOUT_INTERVAL;
-import static com.analysys.presto.connector.hbase.utils.Utils.arrayCopy;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -41,29 +40,28 @@ public class HBaseScanRecordCursor extends HBaseRecordCursor {
     private ResultScanner resultScanner;
     private Iterator iterator;
 
-    private Connection connection = null;
+    private final HBaseScanBatchSizer batchSizer;
+    private final String batchSizeKey;
+    private long observedRows = 0L;
+    private long observedBytes = 0L;
 
     HBaseScanRecordCursor(List<HBaseColumnHandle> columnHandles, HBaseSplit hBaseSplit,
-                          ResultScanner scanner, Map<Integer, HBaseColumnHandle> fieldIndexMap, Connection connection) {
+                          ResultScanner scanner, HBaseColumnLookup columnLookup,
+                          HBaseScanBatchSizer batchSizer, String batchSizeKey, HBaseStats stats) {
+        this.stats = stats;
+        this.batchSizer = batchSizer;
+        this.batchSizeKey = batchSizeKey;
         this.startTime = System.currentTimeMillis();
         this.columnHandles = columnHandles;
-        this.fieldIndexMap = fieldIndexMap;
+        this.columnLookup = columnLookup;
+        this.rowBuffer = new HBaseRowBuffer(columnHandles.size());
 
         this.rowKeyColName = requireNonNull(hBaseSplit.getRowKeyName(),
                 "RowKeyName cannot be null if you want to query by RowKey");
 
         this.split = hBaseSplit;
-        try {
-            this.resultScanner = scanner;
-            if (resultScanner != null) {
-                this.iterator = resultScanner.iterator();
-            }
-
-            this.connection = connection;
-        } catch (Exception ex) {
-            log.error(ex, ex.getMessage());
-            this.close();
-        }
+        this.resultScanner = requireNonNull(scanner, "scanner is null");
+        this.iterator = resultScanner.iterator();
         this.totalBytes = 0L;
     }
 
@@ -89,67 +87,76 @@ public class HBaseScanRecordCursor extends HBaseRecordCursor {
                     return true;
                 }
 
-                fields = new Object[this.columnHandles.size()];
-                ordinalPositionAndFieldsIndexMap.clear();
-                int fieldIndex = 0;
-                for (Cell cell : record.rawCells()) {
-                    // Fetch the index and type of column by column name
-                    HBaseColumnHandle hch = fieldIndexMap.get(Bytes.toString(
-                            arrayCopy(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength())).hashCode());
-                    if (hch == null) {
-                        continue;
-                    }
-
-                    // Set value to fields array
-                    fields[fieldIndex] = matchValue(hch.getColumnType(),
-                            arrayCopy(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
-                    // Store values in an array for queries
-                    ordinalPositionAndFieldsIndexMap.put(hch.getOrdinalPosition(), fieldIndex);
-                    fieldIndex++;
-                }
-                // Handle the value of rowKey column
-                setRowKeyValue2FieldsAry(record, fieldIndex);
+                fillRow(record);
                 return true;
             }
         } catch (Exception ex) {
             log.error(ex, ex.getMessage());
             this.close();
-            return false;
+            throwIfInstanceOf(ex, PrestoException.class);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR,
+                    "Scan of " + split.getSchemaName() + ":" + split.getTableName() + " failed", ex);
         }
     }
 
-    private Result getNextRecord() {
+    @Override
+    Result getNextRecord() {
+        long start = System.nanoTime();
         try {
-            if (iterator == null || !iterator.hasNext()) {
+            // hasNext() blocks on the scanner RPC when the client cache is drained
+            if (!iterator.hasNext()) {
                 return null;
             } else {
                 recordCount++;
-                return (Result) iterator.next();
+                Result result = (Result) iterator.next();
+                long bytes = Result.getTotalSizeOfCells(result);
+                this.totalBytes += bytes;
+                observe(bytes);
+                return result;
             }
         } catch (Exception ex) {
+            // null means the end of split, a failed scan must never look like one
             log.error(ex, ex.getMessage());
+            if (stats != null) {
+                stats.recordFailure(split.getSchemaName() + ":" + split.getTableName(), HBaseStats.AccessMode.SCAN);
+            }
             this.close();
+            throw new PrestoException(GENERIC_INTERNAL_ERROR,
+                    "Scan of " + split.getSchemaName() + ":" + split.getTableName() + " failed", ex);
+        } finally {
+            readTimeNanos += System.nanoTime() - start;
         }
-        return null;
+    }
+
+    /**
+     * Report the size of rows to the batch sizer periodically, so splits which start later use the latest row size.
+     */
+    private void observe(long bytes) {
+        observedRows++;
+        observedBytes += bytes;
+        if (observedRows >= HBaseScanBatchSizer.OBSERVE_INTERVAL_ROWS) {
+            flushObservation();
+        }
+    }
+
+    private void flushObservation() {
+        batchSizer.observe(batchSizeKey, observedRows, observedBytes);
+        observedRows = 0L;
+        observedBytes = 0L;
     }
 
     @Override
     public void close() {
+        // small splits never reach the interval, report what they read as well
+        flushObservation();
         if (this.resultScanner != null) {
             try {
+                recordScanStats(HBaseStats.AccessMode.SCAN, this.resultScanner.getScanMetrics());
                 this.resultScanner.close();
             } catch (Exception e) {
                 log.warn(e.getMessage(), e);
             }
         }
-
-        if (this.connection != null) {
-            try {
-                this.connection.close();
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
-        }
     }
 
     @Override
@@ -159,7 +166,7 @@ public class HBaseScanRecordCursor extends HBaseRecordCursor {
 
     @Override
     public long getReadTimeNanos() {
-        return 0L;
+        return this.readTimeNanos;
     }
 
 }
@@ -16,19 +16,17 @@ package com.analysys.presto.connector.hbase.query;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
 import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
 import com.analysys.presto.connector.hbase.utils.Constant;
-import com.analysys.presto.connector.hbase.utils.Utils;
 import io.airlift.log.Logger;
-import org.apache.hadoop.hbase.Cell;
+import io.prestosql.spi.PrestoException;
 import org.apache.hadoop.hbase.client.ClientSideRegionScanner;
-import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Result;
-import org.apache.hadoop.hbase.util.Bytes;
 import java.net.InetAddress;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -40,27 +38,23 @@ class HBaseScanRecordCursorClientSide extends HBaseRecordCursor {
 
     private static final Logger log = Logger.get(HBaseScanRecordCursorClientSide.class);
 
+    private ClientSideRegionScanner scanner;
     private Iterator iterator;
 
-    private Connection connection = null;
-
     HBaseScanRecordCursorClientSide(List<HBaseColumnHandle> columnHandles, HBaseSplit hBaseSplit,
-                                    ClientSideRegionScanner scanner, Map<Integer, HBaseColumnHandle> fieldIndexMap, Connection connection) {
+                                    ClientSideRegionScanner scanner, HBaseColumnLookup columnLookup,
+                                    HBaseStats stats) {
+        this.stats = stats;
         this.startTime = System.currentTimeMillis();
         this.columnHandles = columnHandles;
-        this.fieldIndexMap = fieldIndexMap;
+        this.columnLookup = columnLookup;
+        this.rowBuffer = new HBaseRowBuffer(columnHandles.size());
         this.rowKeyColName = requireNonNull(hBaseSplit.getRowKeyName(),
                 "RowKeyName cannot be null if you want to query by RowKey");
 
         this.split = hBaseSplit;
-        try {
-            if (scanner != null)
-                this.iterator = scanner.iterator();
-            this.connection = connection;
-        } catch (Exception ex) {
-            log.error(ex, ex.getMessage());
-            this.close();
-        }
+        this.scanner = requireNonNull(scanner, "scanner is null");
+        this.iterator = scanner.iterator();
         this.totalBytes = 0L;
     }
 
@@ -84,57 +78,49 @@ class HBaseScanRecordCursorClientSide extends HBaseRecordCursor {
                     return true;
                 }
 
-                fields = new Object[this.columnHandles.size()];
-                ordinalPositionAndFieldsIndexMap.clear();
-                int fieldIndex = 0;
-                for (Cell cell : record.rawCells()) {
-                    // Fetch the index and type of column by column name
-                    HBaseColumnHandle hch = fieldIndexMap.get(Bytes.toString(
-                            Utils.arrayCopy(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength())).hashCode());
-                    if (hch == null) {
-                        continue;
-                    }
-
-                    // Set value to fields array
-                    fields[fieldIndex] = matchValue(hch.getColumnType(),
-                            Utils.arrayCopy(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
-                    // Store values in an array for queries
-                    ordinalPositionAndFieldsIndexMap.put(hch.getOrdinalPosition(), fieldIndex);
-                    fieldIndex++;
-                }
-                // Handle the value of rowKey column
-                setRowKeyValue2FieldsAry(record, fieldIndex);
+                fillRow(record);
                 return true;
             }
         } catch (Exception ex) {
             log.error(ex, ex.getMessage());
             this.close();
-            return false;
+            throwIfInstanceOf(ex, PrestoException.class);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR,
+                    "Scan of " + split.getSchemaName() + ":" + split.getTableName() + " failed", ex);
         }
     }
 
-    private Result getNextRecord() {
+    @Override
+    Result getNextRecord() {
+        long start = System.nanoTime();
         try {
-            if (iterator == null || !iterator.hasNext()) {
+            // ClientSideRegionScanner reads HFiles of the snapshot in hasNext()
+            if (!iterator.hasNext()) {
                 return null;
             } else {
                 recordCount++;
-                return (Result) iterator.next();
+                Result result = (Result) iterator.next();
+                this.totalBytes += Result.getTotalSizeOfCells(result);
+                return result;
             }
         } catch (Exception ex) {
+            // null means the end of split, a failed scan must never look like one
             log.error(ex, ex.getMessage());
+            if (stats != null) {
+                stats.recordFailure(split.getSchemaName() + ":" + split.getTableName(),
+                        HBaseStats.AccessMode.CLIENT_SIDE_SCAN);
+            }
             this.close();
-            return null;
+            throw new PrestoException(GENERIC_INTERNAL_ERROR,
+                    "Scan of " + split.getSchemaName() + ":" + split.getTableName() + " failed", ex);
+        } finally {
+            readTimeNanos += System.nanoTime() - start;
         }
     }
 
     public void close() {
-        if (this.connection != null)
-            try {
-                this.connection.close();
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
+        recordScanStats(HBaseStats.AccessMode.CLIENT_SIDE_SCAN,
+                this.scanner == null ? null : this.scanner.getScanMetrics());
     }
 
     public long getCompletedBytes() {
@@ -142,7 +128,7 @@ class HBaseScanRecordCursorClientSide extends HBaseRecordCursor {
     }
 
     public long getReadTimeNanos() {
-        return 0L;
+        return this.readTimeNanos;
     }
 
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.frame.HBaseConnectorId;
+import io.airlift.log.Logger;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+import org.weakref.jmx.ObjectNames;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Worker wide statistics of the connector, broken down by access mode and by table.
+ * Stats of access modes are nested in this MBean, stats of a table are exported as their own MBean
+ * the first time the table is accessed.
+ */
+public class HBaseStats {
+
+    private static final Logger log = Logger.get(HBaseStats.class);
+
+    public enum AccessMode {
+        SCAN, CLIENT_SIDE_SCAN, BATCH_GET, INSERT, DELETE
+    }
+
+    private final String connectorId;
+    private final MBeanExporter exporter;
+
+    private final HBaseAccessStats scan = new HBaseAccessStats();
+    private final HBaseAccessStats clientSideScan = new HBaseAccessStats();
+    private final HBaseAccessStats batchGet = new HBaseAccessStats();
+    private final HBaseAccessStats insert = new HBaseAccessStats();
+    private final HBaseAccessStats delete = new HBaseAccessStats();
+
+    private final ConcurrentMap<String, HBaseAccessStats> tableStats = new ConcurrentHashMap<>();
+
+    @Inject
+    public HBaseStats(HBaseConnectorId connectorId, MBeanExporter exporter) {
+        this.connectorId = requireNonNull(connectorId, "connectorId is null").toString();
+        this.exporter = requireNonNull(exporter, "exporter is null");
+    }
+
+    void recordScannerOpen(String table, AccessMode mode, long nanos) {
+        getModeStats(mode).recordScannerOpen(nanos);
+        getTableStats(table).recordScannerOpen(nanos);
+    }
+
+    void recordScan(String table, AccessMode mode, ScanMetrics metrics, long rows, long bytes) {
+        getModeStats(mode).recordScan(metrics, rows, bytes);
+        getTableStats(table).recordScan(metrics, rows, bytes);
+    }
+
+    void recordRequest(String table, AccessMode mode, long nanos, long rows, long bytes) {
+        getModeStats(mode).recordRequest(nanos, rows, bytes);
+        getTableStats(table).recordRequest(nanos, rows, bytes);
+    }
+
+    void recordWrite(String table, AccessMode mode, long nanos, int mutations) {
+        getModeStats(mode).recordWrite(nanos, mutations);
+        getTableStats(table).recordWrite(nanos, mutations);
+    }
+
+    void recordFailure(String table, AccessMode mode) {
+        getModeStats(mode).recordFailure();
+        getTableStats(table).recordFailure();
+    }
+
+    private HBaseAccessStats getModeStats(AccessMode mode) {
+        switch (mode) {
+            case CLIENT_SIDE_SCAN:
+                return clientSideScan;
+            case BATCH_GET:
+                return batchGet;
+            case INSERT:
+                return insert;
+            case DELETE:
+                return delete;
+            default:
+                return scan;
+        }
+    }
+
+    private HBaseAccessStats getTableStats(String table) {
+        return tableStats.computeIfAbsent(table, name -> {
+            HBaseAccessStats stats = new HBaseAccessStats();
+            try {
+                exporter.export(getTableObjectName(name), stats);
+            } catch (Exception e) {
+                log.error(e, e.getMessage());
+            }
+            return stats;
+        });
+    }
+
+    private String getTableObjectName(String table) {
+        return ObjectNames.builder(HBaseAccessStats.class, connectorId).withProperty("table", table).build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (String table : tableStats.keySet()) {
+            try {
+                exporter.unexport(getTableObjectName(table));
+            } catch (Exception e) {
+                log.error(e, e.getMessage());
+            }
+        }
+    }
+
+    @Managed
+    @Nested
+    public HBaseAccessStats getScan() {
+        return scan;
+    }
+
+    @Managed
+    @Nested
+    public HBaseAccessStats getClientSideScan() {
+        return clientSideScan;
+    }
+
+    @Managed
+    @Nested
+    public HBaseAccessStats getBatchGet() {
+        return batchGet;
+    }
+
+    @Managed
+    @Nested
+    public HBaseAccessStats getInsert() {
+        return insert;
+    }
+
+    @Managed
+    @Nested
+    public HBaseAccessStats getDelete() {
+        return delete;
+    }
+}
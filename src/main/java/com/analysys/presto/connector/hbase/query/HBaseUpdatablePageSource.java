@@ -18,10 +18,7 @@ import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
 import io.prestosql.spi.Page;
 import io.prestosql.spi.block.Block;
-import io.prestosql.spi.connector.RecordPageSource;
 import io.prestosql.spi.connector.UpdatablePageSource;
-import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Table;
 import java.util.ArrayList;
@@ -38,21 +35,23 @@ import java.util.concurrent.CompletableFuture;
 public class HBaseUpdatablePageSource implements UpdatablePageSource {
     private static final Logger log = Logger.get(HBaseUpdatablePageSource.class);
     private final HBaseClientManager clientManager;
+    private final HBaseStats stats;
     private String schemaName;
     private String tableName;
-    private final RecordPageSource inner;
+    private final HBasePageSource inner;
 
-    public HBaseUpdatablePageSource(HBaseRecordSet recordSet, HBaseClientManager clientManager) {
+    public HBaseUpdatablePageSource(HBaseRecordSet recordSet, HBasePageSource inner,
+                                    HBaseClientManager clientManager, HBaseStats stats) {
+        this.stats = stats;
         this.schemaName = recordSet.getHBaseSplit().getSchemaName();
         this.tableName = recordSet.getHBaseSplit().getTableName();
-        this.inner = new RecordPageSource(recordSet);
+        this.inner = inner;
         this.clientManager = clientManager;
     }
 
     @Override
     public void deleteRows(Block rowIds) {
-        try (Connection conn = clientManager.createConnection();
-             Table table = conn.getTable(TableName.valueOf(schemaName + ":" + tableName))) {
+        try (Table table = clientManager.borrowTable(schemaName, tableName)) {
             List<Delete> deletes = new ArrayList<>();
             Delete delete;
             for (int i = 0; i < rowIds.getPositionCount(); i++) {
@@ -61,10 +60,16 @@ public class HBaseUpdatablePageSource implements UpdatablePageSource {
                 delete = new Delete(slice.getBytes());
                 deletes.add(delete);
             }
-            if (deletes.size() > 0)
+            if (deletes.size() > 0) {
+                int mutations = deletes.size();
+                long start = System.nanoTime();
                 table.delete(deletes);
+                stats.recordWrite(schemaName + ":" + tableName, HBaseStats.AccessMode.DELETE,
+                        System.nanoTime() - start, mutations);
+            }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
+            stats.recordFailure(schemaName + ":" + tableName, HBaseStats.AccessMode.DELETE);
         }
     }
 
@@ -95,6 +100,11 @@ public class HBaseUpdatablePageSource implements UpdatablePageSource {
         return inner.getNextPage();
     }
 
+    @Override
+    public CompletableFuture<?> isBlocked() {
+        return inner.isBlocked();
+    }
+
     @Override
     public long getSystemMemoryUsage() {
         return inner.getSystemMemoryUsage();
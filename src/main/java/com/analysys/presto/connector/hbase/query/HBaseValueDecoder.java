@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.type.DecimalType;
+import io.prestosql.spi.type.Decimals;
+import io.prestosql.spi.type.StandardTypes;
+import io.prestosql.spi.type.Type;
+import org.apache.hadoop.hbase.util.Bytes;
+import java.math.BigDecimal;
+
+import static com.analysys.presto.connector.hbase.utils.Constant.*;
+
+/**
+ * Decode the value of a cell by the type of its column, shared by HBaseRecordCursor and HBasePageSource.
+ * We store the column value in HBase like Bytes.toBytes(value) rather than Bytes.toBytes(value.toString).
+ * Value is read in place from the array of cell, varchar values are wrapped rather than copied.
+ * Beside varchar type if length is 0, the value will be null.
+ */
+final class HBaseValueDecoder {
+
+    private HBaseValueDecoder() {
+    }
+
+    /**
+     * Receiver of decoded values, indexed by channel so nothing is allocated per value
+     */
+    interface Sink {
+        void setNull(int channel);
+
+        void setBoolean(int channel, boolean value);
+
+        void setLong(int channel, long value);
+
+        void setDouble(int channel, double value);
+
+        void setSlice(int channel, Slice value);
+
+        /**
+         * @param value raw value of an array, see writeArray
+         */
+        void setArray(int channel, Slice value);
+    }
+
+    /**
+     * @param type    type of column
+     * @param value   array that contains the value
+     * @param offset  offset of value
+     * @param length  length of value
+     * @param channel channel of column
+     * @param sink    receiver of the value
+     */
+    static void decode(Type type, byte[] value, int offset, int length, int channel, Sink sink) {
+        Class typeClass = type.getClass();
+        if (value == null || (length == 0 && !typeClass.equals(VARCHAR_CLASS))) {
+            sink.setNull(channel);
+            return;
+        }
+
+        if (typeClass.equals(VARCHAR_CLASS)) {
+            sink.setSlice(channel, Slices.wrappedBuffer(value, offset, length));
+        } else if (typeClass.equals(INTEGER_CLASS)) {
+            sink.setLong(channel, Bytes.toInt(value, offset, length));
+        } else if (typeClass.equals(BIGINT_CLASS) || typeClass.equals(TIMESTAMP_CLASS)) {
+            sink.setLong(channel, Bytes.toLong(value, offset, length));
+        } else if (typeClass.equals(DOUBLE_CLASS)) {
+            sink.setDouble(channel, Bytes.toDouble(value, offset));
+        } else if (typeClass.equals(BOOLEAN_CLASS)) {
+            // 0: false, 1: true
+            sink.setBoolean(channel, Bytes.toInt(value, offset, length) == 1);
+        } else if (type instanceof DecimalType) {
+            BigDecimal dec = Bytes.toBigDecimal(value, offset, length);
+            // When the precision of decimal <= 18(Type is ShortDecimalType) getLong method will be executed.
+            if (((DecimalType) type).isShort()) {
+                sink.setLong(channel, dec.unscaledValue().longValue());
+            } else {
+                sink.setSlice(channel, Decimals.encodeScaledValue(dec));
+            }
+        } else if (type.getTypeSignature().getBase().equals(StandardTypes.ARRAY)) {
+            sink.setArray(channel, Slices.wrappedBuffer(value, offset, length));
+        } else {
+            // Varbinary values are kept as raw bytes
+            sink.setSlice(channel, Slices.wrappedBuffer(value, offset, length));
+        }
+    }
+
+    /**
+     * Write an array value as one entry of output.
+     * We only support Array&lt;String&gt;, elements are joined by ARRAY_STRING_SPLITTER and empty ones are skipped.
+     *
+     * @param arrayType type of the array column
+     * @param output    block builder of the column
+     * @param value     raw value of the array
+     */
+    static void writeArray(Type arrayType, BlockBuilder output, Slice value) {
+        Type elementType = arrayType.getTypeParameters().get(0);
+        BlockBuilder elementBuilder = output.beginBlockEntry();
+        for (String element : value.toStringUtf8().split(ARRAY_STRING_SPLITTER)) {
+            if (!"".equals(element)) {
+                elementType.writeSlice(elementBuilder, Slices.utf8Slice(element));
+            }
+        }
+        output.closeEntry();
+    }
+}
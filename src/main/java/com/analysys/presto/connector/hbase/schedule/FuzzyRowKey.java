@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.schedule;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.predicate.Domain;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A key of FuzzyRowFilter, the mask is 0 for the fixed bytes of row and 1 for the bytes of any value.
+ * When the columns of rowKeyFormat have fixed widths, each field of rowKey is at a known offset, so the
+ * predicates on components that are not leading are matched by the region server, which seeks over
+ * the salt values and the unconstrained components to the next row that can match, within a single scan.
+ */
+public class FuzzyRowKey {
+
+    private static final byte FIXED = 0;
+    private static final byte ANY = 1;
+
+    private final byte[] row;
+    private final byte[] mask;
+
+    @JsonCreator
+    public FuzzyRowKey(@JsonProperty("row") byte[] row,
+                       @JsonProperty("mask") byte[] mask) {
+        this.row = requireNonNull(row, "row is null");
+        this.mask = requireNonNull(mask, "mask is null");
+    }
+
+    @JsonProperty
+    public byte[] getRow() {
+        return row;
+    }
+
+    @JsonProperty
+    public byte[] getMask() {
+        return mask;
+    }
+
+    /**
+     * FuzzyRowFilter rewrites the arrays of its keys, so every filter gets copies of them
+     */
+    public Pair<byte[], byte[]> toPair() {
+        return new Pair<>(Arrays.copyOf(row, row.length), Arrays.copyOf(mask, mask.length));
+    }
+
+    /**
+     * @param rowKeyFormat columns that rowKey consist of, in order
+     * @param lengths      byte lengths of the columns of rowKeyFormat
+     * @param separator    separator between the fields of rowKey
+     * @param saltLength   byte length of the seperate salt part in front of the components, 0 if there is none
+     * @param domains      domains of the constrained columns, keyed by column name
+     * @param maxKeys      max count of keys, the components that exceed it match any value
+     * @return fuzzy keys, empty if no component is fixed by an equality or IN predicate
+     */
+    static List<FuzzyRowKey> of(List<String> rowKeyFormat, List<Integer> lengths, String separator,
+                                int saltLength, Map<String, Domain> domains, int maxKeys) {
+        if (lengths.size() != rowKeyFormat.size()) {
+            return ImmutableList.of();
+        }
+        byte[] separatorBytes = Bytes.toBytes(separator);
+        int keyLength = saltLength > 0 ? saltLength + separatorBytes.length : 0;
+        int[] offsets = new int[rowKeyFormat.size()];
+        for (int i = 0; i < rowKeyFormat.size(); i++) {
+            offsets[i] = keyLength;
+            keyLength += lengths.get(i) + (i < rowKeyFormat.size() - 1 ? separatorBytes.length : 0);
+        }
+
+        byte[] template = new byte[keyLength];
+        byte[] templateMask = new byte[keyLength];
+        Arrays.fill(templateMask, ANY);
+        // separators are fixed, the salt part and the fields match any value unless a predicate fixes them
+        for (int i = saltLength > 0 ? -1 : 0; i < rowKeyFormat.size() - 1; i++) {
+            int offset = i < 0 ? saltLength : offsets[i] + lengths.get(i);
+            System.arraycopy(separatorBytes, 0, template, offset, separatorBytes.length);
+            Arrays.fill(templateMask, offset, offset + separatorBytes.length, FIXED);
+        }
+
+        List<byte[][]> keys = ImmutableList.of(new byte[][]{template, templateMask});
+        boolean fixed = false;
+        for (int i = 0; i < rowKeyFormat.size(); i++) {
+            Optional<List<byte[]>> values = getFieldValues(domains.get(rowKeyFormat.get(i)), lengths.get(i));
+            if (!values.isPresent() || keys.size() * values.get().size() > maxKeys) {
+                continue;
+            }
+            List<byte[][]> next = new ArrayList<>(keys.size() * values.get().size());
+            for (byte[][] key : keys) {
+                for (byte[] value : values.get()) {
+                    byte[] nextRow = Arrays.copyOf(key[0], keyLength);
+                    byte[] nextMask = Arrays.copyOf(key[1], keyLength);
+                    System.arraycopy(value, 0, nextRow, offsets[i], value.length);
+                    Arrays.fill(nextMask, offsets[i], offsets[i] + value.length, FIXED);
+                    next.add(new byte[][]{nextRow, nextMask});
+                }
+            }
+            keys = next;
+            fixed = true;
+        }
+        if (!fixed) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<FuzzyRowKey> fuzzyRowKeys = ImmutableList.builder();
+        keys.forEach(key -> fuzzyRowKeys.add(new FuzzyRowKey(key[0], key[1])));
+        return fuzzyRowKeys.build();
+    }
+
+    /**
+     * @return values of an equality or IN predicate as the bytes of the field, empty if domain is not such
+     * a predicate or one of its values doesn't have the width of the field
+     */
+    private static Optional<List<byte[]>> getFieldValues(Domain domain, int length) {
+        Optional<List<String>> values = RowKeyComponentRanges.getValues(domain);
+        if (!values.isPresent()) {
+            return Optional.empty();
+        }
+        ImmutableList.Builder<byte[]> fieldValues = ImmutableList.builder();
+        for (String value : values.get()) {
+            byte[] bytes = Bytes.toBytes(value);
+            if (bytes.length != length) {
+                return Optional.empty();
+            }
+            fieldValues.add(bytes);
+        }
+        return Optional.of(fieldValues.build());
+    }
+
+    @Override
+    public String toString() {
+        return "FuzzyRowKey{" +
+                "row='" + Bytes.toStringBinary(row) + '\'' +
+                ", mask='" + Bytes.toStringBinary(mask) + '\'' +
+                '}';
+    }
+}
@@ -15,6 +15,7 @@ package com.analysys.presto.connector.hbase.schedule;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import io.prestosql.spi.HostAddress;
 import io.prestosql.spi.connector.ConnectorSplit;
 import org.apache.hadoop.hbase.client.RegionInfo;
@@ -41,6 +42,8 @@ public class HBaseSplit implements ConnectorSplit {
     private final Integer regionIndex;
     private final RegionInfo regionInfo;
     private final String snapshotName;
+    private final List<RowKeyRange> rowKeyRanges;
+    private final List<FuzzyRowKey> fuzzyRowKeys;
 
     @JsonCreator
     public HBaseSplit(@JsonProperty("connectorId") String connectorId,
@@ -54,7 +57,9 @@ public class HBaseSplit implements ConnectorSplit {
                       @JsonProperty("randomScheduleRedundantSplit") boolean randomScheduleRedundantSplit,
                       @JsonProperty("regionIndex") Integer regionIndex,
                       @JsonProperty("regionInfo") RegionInfo regionInfo,
-                      @JsonProperty("snapshotName") String snapshotName) {
+                      @JsonProperty("snapshotName") String snapshotName,
+                      @JsonProperty("rowKeyRanges") List<RowKeyRange> rowKeyRanges,
+                      @JsonProperty("fuzzyRowKeys") List<FuzzyRowKey> fuzzyRowKeys) {
         this.schemaName = Objects.requireNonNull(schemaName, "schema name is null");
         this.connectorId = Objects.requireNonNull(connectorId, "connector id is null");
         this.tableName = Objects.requireNonNull(tableName, "table name is null");
@@ -68,6 +73,8 @@ public class HBaseSplit implements ConnectorSplit {
         this.regionIndex = regionIndex;
         this.regionInfo = regionInfo;
         this.snapshotName = snapshotName;
+        this.rowKeyRanges = rowKeyRanges == null ? ImmutableList.of() : ImmutableList.copyOf(rowKeyRanges);
+        this.fuzzyRowKeys = fuzzyRowKeys == null ? ImmutableList.of() : ImmutableList.copyOf(fuzzyRowKeys);
     }
 
     @JsonProperty
@@ -136,6 +143,22 @@ public class HBaseSplit implements ConnectorSplit {
         return snapshotName;
     }
 
+    /**
+     * @return sorted rowKey ranges scanned by this split, empty if the split scans from startRow to endRow
+     */
+    @JsonProperty
+    public List<RowKeyRange> getRowKeyRanges() {
+        return rowKeyRanges;
+    }
+
+    /**
+     * @return keys of the FuzzyRowFilter of this split, empty if rows are not matched by fixed width fields
+     */
+    @JsonProperty
+    public List<FuzzyRowKey> getFuzzyRowKeys() {
+        return fuzzyRowKeys;
+    }
+
     @Override
     public String toString() {
         return "HBaseSplit{" +
@@ -144,6 +167,8 @@ public class HBaseSplit implements ConnectorSplit {
                 ", tableName='" + tableName + '\'' +
                 ", startRow='" + startRow + '\'' +
                 ", endRow='" + endRow + '\'' +
+                ", rowKeyRanges=" + rowKeyRanges.size() +
+                ", fuzzyRowKeys=" + fuzzyRowKeys.size() +
                 ", regionInfo=" + (regionInfo != null ? regionInfo.toString() : "null") +
                 '}';
     }
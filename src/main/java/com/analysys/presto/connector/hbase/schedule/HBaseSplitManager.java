@@ -14,6 +14,8 @@
 package com.analysys.presto.connector.hbase.schedule;
 
 import com.analysys.presto.connector.hbase.connection.HBaseClientManager;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotCache;
+import com.analysys.presto.connector.hbase.connection.HBaseSnapshotManager;
 import com.analysys.presto.connector.hbase.frame.HBaseConnectorId;
 import com.analysys.presto.connector.hbase.meta.*;
 import com.analysys.presto.connector.hbase.utils.Constant;
@@ -21,22 +23,32 @@ import com.analysys.presto.connector.hbase.utils.TimeTicker;
 import com.analysys.presto.connector.hbase.utils.Utils;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
 import io.prestosql.spi.HostAddress;
+import io.prestosql.spi.PrestoException;
 import io.prestosql.spi.connector.*;
 import io.prestosql.spi.predicate.Domain;
 import io.prestosql.spi.predicate.Range;
 import io.prestosql.spi.predicate.TupleDomain;
 import org.apache.commons.lang.StringUtils;
-import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.util.Bytes;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.analysys.presto.connector.hbase.utils.Constant.*;
-import static com.analysys.presto.connector.hbase.utils.Utils.isEmpty;
+import static io.prestosql.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 
 /**
  * HBase split manager
@@ -52,12 +64,33 @@ public class HBaseSplitManager implements ConnectorSplitManager {
     private final HBaseClientManager clientManager;
 
     private final HBaseConfig config;
+    private final TableMetaRegistry tableMetaRegistry;
+    private final HBaseRegionSizes regionSizes;
+    private final HBaseSnapshotManager snapshotManager;
+    private final HBaseSnapshotCache snapshotCache;
+
+    /**
+     * Threads that generate the splits of scans, splits are handed out to the engine while they are generated
+     */
+    private final ExecutorService splitGeneratorExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("hbase-split-generator-%s").setDaemon(true).build());
+
+    /**
+     * Salty parts only depend on the first char range of rowKey and the salt count, so they are computed once
+     */
+    private final Map<String, List<StartAndEnd>> saltyParts = new ConcurrentHashMap<>();
 
     @Inject
-    public HBaseSplitManager(HBaseConnectorId connectorId, HBaseClientManager clientManager, HBaseConfig config) {
+    public HBaseSplitManager(HBaseConnectorId connectorId, HBaseClientManager clientManager, HBaseConfig config,
+                             TableMetaRegistry tableMetaRegistry, HBaseRegionSizes regionSizes,
+                             HBaseSnapshotManager snapshotManager, HBaseSnapshotCache snapshotCache) {
         this.connectorId = (Objects.requireNonNull(connectorId, "connectorId is null")).toString();
         this.clientManager = Objects.requireNonNull(clientManager, "client is null");
         this.config = Objects.requireNonNull(config, "config is null");
+        this.tableMetaRegistry = Objects.requireNonNull(tableMetaRegistry, "tableMetaRegistry is null");
+        this.regionSizes = Objects.requireNonNull(regionSizes, "regionSizes is null");
+        this.snapshotManager = Objects.requireNonNull(snapshotManager, "snapshotManager is null");
+        this.snapshotCache = Objects.requireNonNull(snapshotCache, "snapshotCache is null");
         log.info("\nPresto HBase Connector Config：" + this.config.toString());
     }
 
@@ -76,106 +109,138 @@ public class HBaseSplitManager implements ConnectorSplitManager {
 
         TupleDomain<ColumnHandle> constraint = tableHandle.getConstraint();
 
-        TableMetaInfo tableMetaInfo = Utils.getTableMetaInfoFromJson(schemaName, tableName, config.getMetaDir());
+        TableMetaInfo tableMetaInfo = tableMetaRegistry.getTableMetaInfo(schemaName, tableName);
         Preconditions.checkState(tableMetaInfo != null,
                 String.format("The meta info of table %s.%s doesn't exists! Table meta dir is %s.",
                         schemaName, tableName, config.getMetaDir()));
 
-        List<HBaseSplit> splits;
-        List<ConditionInfo> conditions = findConditionFromConstraint(constraint);
+        // rowKey components have no cells to filter, their predicates select the rowKey ranges of scan
+        List<ConditionInfo> conditions = findConditionFromConstraint(constraint).stream()
+                .filter(condition -> tableMetaInfo.getRowKeyComponentIndex(condition.getColName()) < 0)
+                .collect(Collectors.toList());
+        Map<String, Domain> domains = getColumnDomains(constraint);
+        RowKeyBounds rowKeyBounds = RowKeyBounds.of(getRowKeyDomain(constraint, tableMetaInfo.getRowKeyColName()));
+        if (rowKeyBounds.isNone()) {
+            return new FixedSplitSource(ImmutableList.of());
+        }
         // batch get
         if (Utils.isBatchGet(conditions, tableMetaInfo.getRowKeyColName())) {
-            splits = getSplitsForBatchGet(conditions, tableMetaInfo, tableHandle);
+            List<HBaseSplit> splits = getSplitsForBatchGet(conditions, tableMetaInfo, tableHandle);
             Collections.shuffle(splits);
             return new FixedSplitSource(splits);
         }
         // client side scan
         else if (isClientSideRegionScanTable(schemaName, tableName, config.getClientSideQueryModeTableNames())) {
-            splits = getSplitsForClientSide(schemaName, tableName, conditions, tableMetaInfo.getRowKeyColName());
+            // reuse a fresh snapshot or start creating one, while the split generator locates regions
+            CompletableFuture<String> snapshot = snapshotManager.acquireSnapshot(
+                    session.getQueryId(), schemaName, tableName);
+            return new HBaseSplitSource(schemaName + ":" + tableName, splitGeneratorExecutor,
+                    sink -> getSplitsForClientSide(snapshot, schemaName, tableName, conditions,
+                            tableMetaInfo.getRowKeyColName(), rowKeyBounds, sink));
         }
         // normal scan
         else {
-            splits = getSplitsForScan(conditions, tableMetaInfo);
+            return new HBaseSplitSource(schemaName + ":" + tableName, splitGeneratorExecutor,
+                    sink -> getSplitsForScan(conditions, domains, tableMetaInfo, rowKeyBounds, sink));
         }
+    }
 
-        log.info("The final split count is " + splits.size() + ".");
-        splits.forEach(split -> log.info("print split info：" + split.toString()));
-
-        Collections.shuffle(splits);
-        return new FixedSplitSource(splits);
+    @PreDestroy
+    public void destroy() {
+        splitGeneratorExecutor.shutdownNow();
     }
 
     /**
      * get splits for client side query mode
      *
+     * @param snapshot   future of the snapshot name, the snapshot is referenced by the query until it finishes
      * @param schemaName schema name
      * @param tableName  table name
      * @param conditions conditions
      * @param rowKeyName rowKey name
-     * @return splits
+     * @param bounds     rows selected by the rowKey predicate
+     * @param sink       receives the splits of each region as soon as they are created
+     * @throws Exception if the snapshot or its regions cannot be got, the split source fails the query with it
      */
-    private List<HBaseSplit> getSplitsForClientSide(String schemaName, String tableName,
-                                                    List<ConditionInfo> conditions, String rowKeyName) {
+    private void getSplitsForClientSide(CompletableFuture<String> snapshot, String schemaName, String tableName,
+                                        List<ConditionInfo> conditions, String rowKeyName, RowKeyBounds bounds,
+                                        Consumer<List<HBaseSplit>> sink) throws Exception {
         log.info("ClientSideRegionScanner:" + schemaName + ":" + tableName);
         int hostIndex = 0;
         long createSnapshotTime = 0;
-        List<HBaseSplit> splits = new ArrayList<>();
         String snapshotName = null;
         try {
+            TableRegions tableRegions = getTableRegions(schemaName, tableName);
             long start = System.currentTimeMillis();
-            // create snapshot with retry
-            snapshotName = createSnapshotWithRetry(schemaName, tableName, clientManager.getAdmin());
+            snapshotName = snapshot.get();
             createSnapshotTime = TimeTicker.calculateTimeTo(start);
+            if (snapshotName == null) {
+                // a missing snapshot must not look like an empty table
+                throw new PrestoException(GENERIC_INTERNAL_ERROR,
+                        "Create snapshot of table " + schemaName + ":" + tableName + " failed");
+            }
 
             // get regions from snapshot
-            List<RegionInfo> regions = Utils.getRegionInfos(config.getHbaseZookeeperQuorum(),
-                    config.getZookeeperClientPort(), config.getHbaseRootDir(), snapshotName);
+            List<RegionInfo> regions = snapshotCache.getSnapshot(snapshotName).getRegions();
             // create splits
             for (RegionInfo regionInfo : regions) {
-                // Client side region scanner using no startKey and endKey.
-                splits.add(createHBaseSplit(schemaName, tableName, rowKeyName, hostIndex, null, null,
-                        conditions, hostIndex, regionInfo, snapshotName));
+                // Client side region scanner is bounded by the region, a large region is cut into several
+                // key ranges of the same region, the first one has no startKey and the last one has no endKey.
+                // Key ranges outside of the rowKey bounds are skipped, the others are narrowed to them.
+                List<String> points = getClientSideSplitPoints(regionInfo, tableRegions);
+                List<HBaseSplit> splits = new ArrayList<>(points.size() + 1);
+                String startRow = null;
+                for (int i = 0; i <= points.size(); i++) {
+                    String endRow = i < points.size() ? points.get(i) : null;
+                    Optional<RowKeyBounds> range = bounds.intersect(
+                            startRow != null ? startRow : toRow(regionInfo.getStartKey()),
+                            endRow != null ? endRow : toRow(regionInfo.getEndKey()));
+                    if (range.isPresent()) {
+                        splits.add(createHBaseSplit(schemaName, tableName, rowKeyName, hostIndex,
+                                bounds.isAll() ? startRow : range.get().getStartRow(),
+                                bounds.isAll() ? endRow : range.get().getStopRow(),
+                                conditions, hostIndex, regionInfo, snapshotName));
+                    }
+                    startRow = endRow;
+                }
+                if (!splits.isEmpty()) {
+                    sink.accept(splits);
+                }
                 hostIndex++;
             }
         } catch (Exception e) {
             log.error(e, "E-1-1: " + e.getMessage());
+            throw e;
         }
-        log.info("create snapshot " + snapshotName + ", using " + createSnapshotTime + " mill seconds.");
-        return splits;
+        log.info("wait for snapshot " + snapshotName + ", using " + createSnapshotTime + " mill seconds.");
     }
 
     /**
-     * create snapshot with retry
-     *
-     * @param admin HBase admin
-     * @return snapshot name
+     * @return key as a row, null if key is empty or doesn't survive the conversion to String
      */
-    private String createSnapshotWithRetry(String schemaName, String tableName, Admin admin) {
-        long start = System.currentTimeMillis();
-        String snapshotName = null;
-        try {
-            snapshotName = "ss-" + schemaName + "." + tableName + "-" + System.nanoTime();
-            HBaseMetadata.createSnapshot(snapshotName, admin, schemaName, tableName);
-        } catch (Exception e) {
-            log.error(e, "E-2-1: Exception: create snapshot failed, snapshotName is " + snapshotName
-                    + ", track:" + e.getMessage());
-            for (int i = 0; i < config.getCreateSnapshotRetryTimes(); i++) {
-                try {
-                    Thread.sleep(100);
-                    HBaseMetadata.createSnapshot(snapshotName, admin, schemaName, tableName);
-                    log.info("Recreate snapshot success! snapshotName is " + snapshotName
-                            + ", retried ：" + i + " times, using " + (System.currentTimeMillis() - start) + " mill seconds.");
-                    return snapshotName;
-                } catch (Exception ee) {
-                    log.error(ee, "E-2-2: create snapshot failed, snapshotName is " + snapshotName
-                            + ", track:" + ee.getMessage());
-                }
-            }
-            log.error("E-2-3: after retry, create snapshot " + snapshotName + " still failed.");
+    private static String toRow(byte[] key) {
+        if (key.length == 0) {
+            return null;
         }
-        log.info("createSnapshotWithRetry: create snapshot " + snapshotName
-                + " finished, using " + (System.currentTimeMillis() - start) + " mill seconds.");
-        return snapshotName;
+        String row = Bytes.toString(key);
+        return Arrays.equals(Bytes.toBytes(row), key) ? row : null;
+    }
+
+    /**
+     * @return rows to cut a snapshot region at, empty if it is small or its keys are not Strings
+     */
+    private List<String> getClientSideSplitPoints(RegionInfo regionInfo, TableRegions tableRegions) {
+        int splitCount = getSplitCount(tableRegions.getBytesOfRegion(regionInfo.getStartKey()));
+        if (splitCount <= 1) {
+            return ImmutableList.of();
+        }
+        String startRow = Bytes.toString(regionInfo.getStartKey());
+        String endRow = regionInfo.getEndKey().length == 0 ? null : Bytes.toString(regionInfo.getEndKey());
+        if (!Arrays.equals(Bytes.toBytes(startRow), regionInfo.getStartKey())
+                || (endRow != null && !Arrays.equals(Bytes.toBytes(endRow), regionInfo.getEndKey()))) {
+            return ImmutableList.of();
+        }
+        return TableRegions.splitPoints(startRow, endRow, splitCount);
     }
 
     /**
@@ -213,101 +278,244 @@ public class HBaseSplitManager implements ConnectorSplitManager {
      * get splits for scan query mode
      *
      * @param conditions    conditions
+     * @param domains       domains of the constrained columns, keyed by column name
      * @param tableMetaInfo tableMetaInfo
-     * @return splits
+     * @param bounds        rows selected by the rowKey predicate
+     * @param sink          receives splits as soon as they are created
      */
-    private List<HBaseSplit> getSplitsForScan(List<ConditionInfo> conditions,
-                                                TableMetaInfo tableMetaInfo) {
+    private void getSplitsForScan(List<ConditionInfo> conditions, Map<String, Domain> domains,
+                                  TableMetaInfo tableMetaInfo, RowKeyBounds bounds, Consumer<List<HBaseSplit>> sink) {
         String schemaName = tableMetaInfo.getSchemaName();
         String tableName = tableMetaInfo.getTableName();
         log.info("NormalRegionScanner:" + schemaName + ":" + tableName);
-        List<HBaseSplit> splits = new ArrayList<>();
-        int hostIndex = 0;
-        List<String> notSaltyPartStartKeyList;
+        String separator = tableMetaInfo.getRowKeySeparator();
         List<StartAndEnd> saltyPartStartKeyList;
-
-        // make startKey by rowKey format and constraint.
-        if (!conditions.isEmpty() && !isEmpty(tableMetaInfo.getRowKeyFormat())) {
-            notSaltyPartStartKeyList = getScanStartKey(conditions, "", tableMetaInfo.getRowKeyFormat().split(","), 0);
-        } else {
-            notSaltyPartStartKeyList = new ArrayList<>();
+        TableRegions regions = getTableRegions(schemaName, tableName);
+
+        // make rowKey ranges by rowKey format and constraint.
+        List<RowKeyBounds> componentRanges = domains.isEmpty() || tableMetaInfo.getRowKeyFormatColumns().isEmpty()
+                ? ImmutableList.of()
+                : RowKeyComponentRanges.of(tableMetaInfo.getRowKeyFormatColumns(), separator, domains,
+                MAX_ROWKEY_RANGE_COUNT);
+        // fields of a fixed width rowKey are matched by FuzzyRowFilter, which seeks over the salt values
+        // and the unconstrained fields, so predicates on fields that are not leading don't read every row
+        List<FuzzyRowKey> fuzzyRowKeys = domains.isEmpty() ? ImmutableList.of()
+                : FuzzyRowKey.of(tableMetaInfo.getRowKeyFormatColumns(), tableMetaInfo.getRowKeyFormatColumnLengths(),
+                separator, config.isSeperateSaltPart() ? SALT_PART_LENGTH : 0, domains, MAX_FUZZY_ROW_KEYS);
+        if (!fuzzyRowKeys.isEmpty()) {
+            log.info("Match " + fuzzyRowKeys.size() + " fuzzy row keys of " + schemaName + ":" + tableName
+                    + ", the first is " + fuzzyRowKeys.get(0));
+        }
+        // a single range of a table without salt part is a bound of rows, which is cut at regions and by size
+        if (!config.isSeperateSaltPart() && componentRanges.size() == 1) {
+            Optional<RowKeyBounds> narrowed = bounds.intersect(
+                    componentRanges.get(0).getStartRow(), componentRanges.get(0).getStopRow());
+            if (!narrowed.isPresent()) {
+                return;
+            }
+            bounds = narrowed.get();
+            componentRanges = ImmutableList.of();
         }
 
-        // whether we can create startKeyList by constraint
-        if (!notSaltyPartStartKeyList.isEmpty()) {
+        // whether we can create rowKey ranges by constraint
+        if (!componentRanges.isEmpty()) {
+            List<RowKeyRange> rowKeyRanges = new ArrayList<>();
             // whether this table has seperate salty part at the start of rowKey
             // after version dev_0.1.5 salt value part can only have one single character
             if (config.isSeperateSaltPart()) {
-                // each possible value within the range of salt value must form a finalStartKey separately with startKey
+                // each possible value within the range of salt value must form a range separately with the components
                 // otherwise, duplicate data will appear in scan operation
-                // therefore, the number of splits should be controlled within 100 to avoid too much performance degradation
                 // so saltCount has to be Integer.MAX_VALUE
                 saltyPartStartKeyList = getSaltyParts(tableMetaInfo.getRowKeyFirstCharRange(), Integer.MAX_VALUE);
-                if (saltyPartStartKeyList.size() * notSaltyPartStartKeyList.size() <= MAX_SPLIT_COUNT) {
-                    for (String notSaltyPartStartKey : notSaltyPartStartKeyList) {
+                if ((long) saltyPartStartKeyList.size() * componentRanges.size() <= MAX_ROWKEY_RANGE_COUNT) {
+                    for (RowKeyBounds componentRange : componentRanges) {
                         for (StartAndEnd saltyPartStartKey : saltyPartStartKeyList) {
-                            String finalStartKey = saltyPartStartKey.start + ROWKEY_SPLITER + notSaltyPartStartKey + ROWKEY_SPLITER;
-                            splits.add(createHBaseSplit(schemaName, tableName,
-                                    tableMetaInfo.getRowKeyColName(), hostIndex,
-                                    finalStartKey, finalStartKey + ROWKEY_TAIL, conditions,
-                                    -1, null, null));
-                            hostIndex += 1;
+                            // the same slice of every salt bucket
+                            String saltPrefix = saltyPartStartKey.start + separator;
+                            rowKeyRanges.add(new RowKeyRange(
+                                    componentRange.getStartRow() == null
+                                            ? saltPrefix : saltPrefix + componentRange.getStartRow(),
+                                    componentRange.getStopRow() == null
+                                            ? saltyPartStartKey.start + RowKeyComponentRanges.successor(separator)
+                                            : saltPrefix + componentRange.getStopRow()));
                         }
                     }
                 }
-                // there are too many splits created according to the salt value + constraint
-                // the performance is bad, so we have to create splits according to the salt value only
+                // there are too many rowKey ranges created according to the salt value + constraint
+                // so we have to create splits according to the salt value only
                 // and do a full table scan concurrently
                 else {
-                    addSplitsOnlyBySaltyPart(splits, schemaName, tableName, tableMetaInfo.getRowKeyColName(),
-                            conditions, tableMetaInfo.getRowKeyFirstCharRange());
+                    addSplitsOnlyBySaltyPart(sink, schemaName, tableName, tableMetaInfo.getRowKeyColName(),
+                            conditions, fuzzyRowKeys, tableMetaInfo.getRowKeyFirstCharRange(), regions, bounds);
                 }
             }
-            // there is no seperate salty part, we have to take notSaltyPartStartKeyList as startKey and stopKey
+            // there is no seperate salty part, ranges of the components are the ranges of rowKey
             else {
-                for (String notSaltyPartStartKey : notSaltyPartStartKeyList) {
-                    splits.add(createHBaseSplit(schemaName, tableName,
-                            tableMetaInfo.getRowKeyColName(), hostIndex,
-                            notSaltyPartStartKey + ROWKEY_SPLITER,
-                            notSaltyPartStartKey + ROWKEY_SPLITER + ROWKEY_TAIL,
-                            conditions, -1, null, null));
-                    hostIndex += 1;
+                for (RowKeyBounds componentRange : componentRanges) {
+                    rowKeyRanges.add(new RowKeyRange(componentRange.getStartRow(), componentRange.getStopRow()));
                 }
             }
+            // narrow the ranges to the rowKey bounds
+            RowKeyBounds rowKeyBounds = bounds;
+            rowKeyRanges = rowKeyRanges.stream()
+                    .map(range -> rowKeyBounds.intersect(range.getStartRow(), range.getEndRow()))
+                    .filter(Optional::isPresent)
+                    .map(range -> new RowKeyRange(range.get().getStartRow(), range.get().getStopRow()))
+                    .collect(Collectors.toList());
+            if (!rowKeyRanges.isEmpty()) {
+                sink.accept(createSplitsByRegion(schemaName, tableName,
+                        tableMetaInfo.getRowKeyColName(), conditions, fuzzyRowKeys, rowKeyRanges, regions));
+            }
         } else {
             // have no constraints to create the StartKey, and RowKey has no salt part on the prefix like '01-xxxxx',
-            // have to scan full table using one single split,
+            // have to scan full table using one split per region,
             // check if the prefix of rowKey are random code so we still can create multiple splits
             if (StringUtils.isNotEmpty(tableMetaInfo.getRowKeyFirstCharRange())) {
-                addSplitsOnlyBySaltyPart(splits, schemaName, tableName, tableMetaInfo.getRowKeyColName(),
-                        conditions, tableMetaInfo.getRowKeyFirstCharRange());
+                addSplitsOnlyBySaltyPart(sink, schemaName, tableName, tableMetaInfo.getRowKeyColName(),
+                        conditions, fuzzyRowKeys, tableMetaInfo.getRowKeyFirstCharRange(), regions, bounds);
             }
-            // single split
+            // one split per region within the rowKey bounds
             else {
-                splits.add(createHBaseSplit(schemaName, tableName,
-                        tableMetaInfo.getRowKeyColName(), hostIndex,
-                        null, null, conditions, -1, null, null));
+                addSplitsBySubRanges(sink, schemaName, tableName, tableMetaInfo.getRowKeyColName(),
+                        conditions, fuzzyRowKeys, regions.cut(bounds.getStartRow(), bounds.getStopRow()), regions);
             }
         }
+    }
 
+    /**
+     * Pack rowKey ranges into splits, ranges of the same region share one split and one scanner,
+     * which skips between them by MultiRowRangeFilter.
+     *
+     * @param schemaName    schema name
+     * @param tableName     table name
+     * @param rowKeyColName rowKey column name
+     * @param conditions    conditions from constraint
+     * @param fuzzyRowKeys  keys of the FuzzyRowFilter of splits
+     * @param rowKeyRanges  rowKey ranges to scan
+     * @param regions       regions of table
+     * @return splits
+     */
+    private List<HBaseSplit> createSplitsByRegion(String schemaName, String tableName, String rowKeyColName,
+                                                  List<ConditionInfo> conditions, List<FuzzyRowKey> fuzzyRowKeys,
+                                                  List<RowKeyRange> rowKeyRanges, TableRegions regions) {
+        List<HBaseSplit> splits = new ArrayList<>();
+        int hostIndex = 0;
+        List<List<RowKeyRange>> groups = groupRowKeyRangesByRegion(rowKeyRanges,
+                regions.getStartKeys(), ROWKEY_RANGES_PER_SPLIT);
+        for (List<RowKeyRange> group : groups) {
+            // ranges are sorted by start row, but a shorter range prefix may end after the following ones
+            String endRow = group.get(0).getEndRow();
+            for (RowKeyRange range : group) {
+                if (Bytes.compareTo(Bytes.toBytes(range.getEndRow()), Bytes.toBytes(endRow)) > 0) {
+                    endRow = range.getEndRow();
+                }
+            }
+            int region = regions.findRegion(group.get(0).getStartRow());
+            splits.add(createHBaseSplit(schemaName, tableName, rowKeyColName,
+                    getHostAddresses(hostIndex, regions, region),
+                    group.get(0).getStartRow(), endRow, conditions, -1, null, null, group, fuzzyRowKeys));
+            hostIndex += 1;
+        }
+        log.info("Pack " + rowKeyRanges.size() + " rowKey ranges of table " + schemaName + ":" + tableName
+                + " into " + splits.size() + " splits.");
         return splits;
     }
 
-    private void addSplitsOnlyBySaltyPart(List<HBaseSplit> splits, String schemaName, String tableName,
+    /**
+     * Group sorted rowKey ranges by the region where they start, a group has at most maxRangesPerGroup ranges.
+     *
+     * @param rowKeyRanges      rowKey ranges
+     * @param regionStartKeys   sorted start keys of the regions, empty if the regions are unknown
+     * @param maxRangesPerGroup max ranges of a group
+     * @return groups of sorted ranges
+     */
+    static List<List<RowKeyRange>> groupRowKeyRangesByRegion(List<RowKeyRange> rowKeyRanges,
+                                                             List<byte[]> regionStartKeys, int maxRangesPerGroup) {
+        List<RowKeyRange> sortedRanges = rowKeyRanges.stream().distinct().sorted().collect(Collectors.toList());
+        List<List<RowKeyRange>> groups = new ArrayList<>();
+        List<RowKeyRange> group = new ArrayList<>();
+        int groupRegion = -1;
+        for (RowKeyRange range : sortedRanges) {
+            int region = TableRegions.findRegion(regionStartKeys, Bytes.toBytes(range.getStartRow()));
+            if (!group.isEmpty() && (region != groupRegion || group.size() >= maxRangesPerGroup)) {
+                groups.add(group);
+                group = new ArrayList<>();
+            }
+            group.add(range);
+            groupRegion = region;
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Add splits for sub ranges that are each within one region. The bytes of a region are shared
+     * by its sub ranges, a sub range with more than target-split-size-mb is cut again into several splits.
+     *
+     * @param sink         receives the splits of each sub range as soon as they are created
+     * @param fuzzyRowKeys keys of the FuzzyRowFilter of splits
+     * @param subRanges    sub ranges cut at region boundaries
+     * @param regions      regions of table
+     */
+    private void addSplitsBySubRanges(Consumer<List<HBaseSplit>> sink, String schemaName, String tableName,
+                                      String rowKeyColName, List<ConditionInfo> conditions,
+                                      List<FuzzyRowKey> fuzzyRowKeys, List<TableRegions.SubRange> subRanges,
+                                      TableRegions regions) {
+        Map<Integer, Integer> subRangesPerRegion = new HashMap<>();
+        subRanges.forEach(subRange -> subRangesPerRegion.merge(subRange.region, 1, Integer::sum));
+        int hostIndex = 0;
+        for (TableRegions.SubRange subRange : subRanges) {
+            long bytes = regions.getBytes(subRange.region) / subRangesPerRegion.get(subRange.region);
+            List<HostAddress> addresses = getHostAddresses(hostIndex++, regions, subRange.region);
+            List<HBaseSplit> splits = new ArrayList<>();
+            String startRow = subRange.startRow;
+            for (String point : TableRegions.splitPoints(subRange.startRow, subRange.endRow, getSplitCount(bytes))) {
+                splits.add(createHBaseSplit(schemaName, tableName, rowKeyColName, addresses,
+                        startRow, point, conditions, -1, null, null, null, fuzzyRowKeys));
+                startRow = point;
+            }
+            splits.add(createHBaseSplit(schemaName, tableName, rowKeyColName, addresses,
+                    startRow, subRange.endRow, conditions, -1, null, null, null, fuzzyRowKeys));
+            sink.accept(splits);
+        }
+    }
+
+    /**
+     * @param bytes bytes to scan
+     * @return count of splits that scan about target-split-size-mb each
+     */
+    private int getSplitCount(long bytes) {
+        long targetBytes = config.getTargetSplitSizeMb() * 1024L * 1024L;
+        return (int) Math.max(1L, Math.min(MAX_SPLITS_PER_REGION, (bytes + targetBytes - 1) / targetBytes));
+    }
+
+    private TableRegions getTableRegions(String schemaName, String tableName) {
+        try (RegionLocator locator = clientManager.getConnection()
+                .getRegionLocator(TableName.valueOf(schemaName + ":" + tableName))) {
+            TableRegions regions = TableRegions.of(locator.getAllRegionLocations());
+            return regionSizes.getRegionSizes(schemaName, tableName).map(regions::withSizes).orElse(regions);
+        } catch (Exception e) {
+            log.error(e, e.getMessage());
+            return TableRegions.unknown();
+        }
+    }
+
+    private void addSplitsOnlyBySaltyPart(Consumer<List<HBaseSplit>> sink, String schemaName, String tableName,
                                           String rowKeyColName, List<ConditionInfo> conditions,
-                                          String rowKeyFirstCharRange) {
+                                          List<FuzzyRowKey> fuzzyRowKeys, String rowKeyFirstCharRange,
+                                          TableRegions regions, RowKeyBounds bounds) {
         log.info("Create multi-splits by the first char of rowKey, table is " + schemaName + ":" + tableName
                 + ", the range of first char is : " + rowKeyFirstCharRange);
-        int hostIndex = 0;
         List<StartAndEnd> startAndEndRowKeys =
                 getSaltyParts(rowKeyFirstCharRange, ROWKEY_PREFIX_SPLIT_COUNT);
+        List<TableRegions.SubRange> subRanges = new ArrayList<>();
         for (StartAndEnd range : startAndEndRowKeys) {
-            splits.add(createHBaseSplit(schemaName, tableName,
-                    rowKeyColName, hostIndex,
-                    range.start + "", range.end + ROWKEY_TAIL, conditions,
-                    -1, null, null));
-            hostIndex += 1;
+            bounds.intersect(range.start + "", range.end + ROWKEY_TAIL).ifPresent(
+                    rows -> subRanges.addAll(regions.cut(rows.getStartRow(), rows.getStopRow())));
         }
+        addSplitsBySubRanges(sink, schemaName, tableName, rowKeyColName, conditions, fuzzyRowKeys, subRanges, regions);
     }
 
     /**
@@ -318,6 +526,11 @@ public class HBaseSplitManager implements ConnectorSplitManager {
      * @return start and end rowKeys
      */
     private List<StartAndEnd> getSaltyParts(String rowKeyFirstCharRange, int saltCount) {
+        return saltyParts.computeIfAbsent(rowKeyFirstCharRange + SWUNG_DASH + saltCount,
+                key -> computeSaltyParts(rowKeyFirstCharRange, saltCount));
+    }
+
+    private List<StartAndEnd> computeSaltyParts(String rowKeyFirstCharRange, int saltCount) {
         List<StartAndEnd> prefixRanges = Arrays.stream(rowKeyFirstCharRange.split(COMMA))
                 .map(StartAndEnd::new).collect(Collectors.toList());
         int rangeSpace = 0;
@@ -444,41 +657,30 @@ public class HBaseSplitManager implements ConnectorSplitManager {
     private HBaseSplit createHBaseSplit(String schemaName, String tableName, String rowKeyColName, int hostIndex,
                                         String startKey, String endKey, List<ConditionInfo> conditions,
                                         int regionIndex, RegionInfo regionInfo, String snapshotName) {
+        return createHBaseSplit(schemaName, tableName, rowKeyColName, getHostAddresses(hostIndex), startKey, endKey,
+                conditions, regionIndex, regionInfo, snapshotName, null, null);
+    }
+
+    private HBaseSplit createHBaseSplit(String schemaName, String tableName, String rowKeyColName,
+                                        List<HostAddress> addresses,
+                                        String startKey, String endKey, List<ConditionInfo> conditions,
+                                        int regionIndex, RegionInfo regionInfo, String snapshotName,
+                                        List<RowKeyRange> rowKeyRanges, List<FuzzyRowKey> fuzzyRowKeys) {
         return new HBaseSplit(this.connectorId, schemaName,
-                tableName, rowKeyColName, getHostAddresses(hostIndex), startKey, endKey, conditions,
-                config.isRandomScheduleRedundantSplit(), regionIndex, regionInfo, snapshotName);
+                tableName, rowKeyColName, addresses, startKey, endKey, conditions,
+                config.isRandomScheduleRedundantSplit(), regionIndex, regionInfo, snapshotName, rowKeyRanges,
+                fuzzyRowKeys);
     }
 
     /**
-     * get scan startKey
-     *
-     * @param conditions   all query conditions
-     * @param tmpStartKey  tmp start key
-     * @param rowKeyFormat format of rowKey
-     * @param formatIndex  the index of rowKey format
-     * @return A list of all startKey
+     * Splits are pinned to the configured workers when random-schedule-redundant-split is true,
+     * otherwise the host of the region server is the preferred address of a split, so a co-located worker reads it.
      */
-    private List<String> getScanStartKey(List<ConditionInfo> conditions,
-                                         String tmpStartKey, String[] rowKeyFormat, int formatIndex) {
-        List<String> tmpStartKeys = new ArrayList<>();
-        if (formatIndex == rowKeyFormat.length) {
-            tmpStartKeys.add(tmpStartKey);
-            return tmpStartKeys;
-        }
-        List<ConditionInfo> formatCondition = conditions.stream()
-                // Filter out query conditions that conform to rowKey composition and whose operator is ==
-                .filter(condition -> condition.getColName().equals(rowKeyFormat[formatIndex])
-                        && condition.getOperator() == CONDITION_OPER.EQ)
-                .collect(Collectors.toList());
-        for (ConditionInfo condition : formatCondition) {
-            tmpStartKeys.addAll(
-                    getScanStartKey(conditions,
-                            tmpStartKey + ((isEmpty(tmpStartKey) ? "" : ",") + condition.valueToString()),
-                            rowKeyFormat,
-                            formatIndex + 1)
-            );
-        }
-        return tmpStartKeys;
+    private List<HostAddress> getHostAddresses(int index, TableRegions regions, int region) {
+        if (config.isRandomScheduleRedundantSplit()) {
+            return getHostAddresses(index);
+        }
+        return regions.getHost(region).map(ImmutableList::of).orElse(ImmutableList.of());
     }
 
     private List<HostAddress> getHostAddresses(int index) {
@@ -580,4 +782,27 @@ public class HBaseSplitManager implements ConnectorSplitManager {
         return handles;
     }
 
+    /**
+     * @return domain of rowKey column, empty if rowKey is not constrained
+     */
+    private static Optional<Domain> getRowKeyDomain(TupleDomain<ColumnHandle> constraint, String rowKeyColName) {
+        if (rowKeyColName == null || !constraint.getDomains().isPresent()) {
+            return Optional.empty();
+        }
+        return constraint.getDomains().get().entrySet().stream()
+                .filter(entry -> rowKeyColName.equals(((HBaseColumnHandle) entry.getKey()).getColumnName()))
+                .map(Map.Entry::getValue)
+                .findAny();
+    }
+
+    /**
+     * @return domains of the constrained columns, keyed by column name
+     */
+    private static Map<String, Domain> getColumnDomains(TupleDomain<ColumnHandle> constraint) {
+        Map<String, Domain> domains = new HashMap<>();
+        constraint.getDomains().ifPresent(columnDomains -> columnDomains.forEach(
+                (column, domain) -> domains.put(((HBaseColumnHandle) column).getColumnName(), domain)));
+        return domains;
+    }
+
 }
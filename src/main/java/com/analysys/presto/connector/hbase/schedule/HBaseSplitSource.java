@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.schedule;
+
+import io.airlift.log.Logger;
+import io.prestosql.spi.connector.ConnectorPartitionHandle;
+import io.prestosql.spi.connector.ConnectorSplit;
+import io.prestosql.spi.connector.ConnectorSplitSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits generated on a background thread and handed out as soon as they are produced,
+ * so workers scan the first regions while snapshot, region and rowKey range work for the rest is still running.
+ * The engine never waits on a thread, it gets a future from getNextBatch when no split is ready yet.
+ */
+class HBaseSplitSource implements ConnectorSplitSource {
+
+    private static final Logger log = Logger.get(HBaseSplitSource.class);
+
+    /**
+     * Produces splits of a table scan, passing each batch to the sink as soon as it is created
+     */
+    interface SplitGenerator {
+        void generate(Consumer<List<HBaseSplit>> sink) throws Exception;
+    }
+
+    private final String tableName;
+    private final Queue<ConnectorSplit> splits = new ArrayDeque<>();
+    private CompletableFuture<?> notEmpty = new CompletableFuture<>();
+    private boolean noMoreSplits;
+    private Throwable failure;
+    private int splitCount;
+    private volatile boolean closed;
+
+    private final Future<?> generateTask;
+
+    HBaseSplitSource(String tableName, ExecutorService executor, SplitGenerator generator) {
+        this.tableName = requireNonNull(tableName, "tableName is null");
+        requireNonNull(generator, "generator is null");
+        this.generateTask = executor.submit(() -> generate(generator));
+    }
+
+    private void generate(SplitGenerator generator) {
+        long start = System.currentTimeMillis();
+        try {
+            generator.generate(this::addSplits);
+        } catch (Throwable e) {
+            log.error(e, e.getMessage());
+            synchronized (this) {
+                // a generator cancelled by close has nobody to report to
+                if (!closed) {
+                    failure = e;
+                }
+            }
+        } finally {
+            CompletableFuture<?> future;
+            synchronized (this) {
+                noMoreSplits = true;
+                future = notEmpty;
+            }
+            future.complete(null);
+            log.info("The final split count of " + tableName + " is " + splitCount + ", generated in "
+                    + (System.currentTimeMillis() - start) + " mill seconds.");
+        }
+    }
+
+    private void addSplits(List<HBaseSplit> batch) {
+        if (closed || batch.isEmpty()) {
+            return;
+        }
+        batch.forEach(split -> log.info("print split info：" + split.toString()));
+        CompletableFuture<?> future;
+        synchronized (this) {
+            splits.addAll(batch);
+            splitCount += batch.size();
+            future = notEmpty;
+        }
+        // complete outside of the lock, dependent batches are taken by the completing thread
+        future.complete(null);
+    }
+
+    @Override
+    public CompletableFuture<ConnectorSplitBatch> getNextBatch(ConnectorPartitionHandle partitionHandle, int maxSize) {
+        CompletableFuture<?> future;
+        synchronized (this) {
+            if (failure != null) {
+                CompletableFuture<ConnectorSplitBatch> failed = new CompletableFuture<>();
+                failed.completeExceptionally(failure);
+                return failed;
+            }
+            if (!splits.isEmpty() || noMoreSplits) {
+                return CompletableFuture.completedFuture(takeBatch(maxSize));
+            }
+            if (notEmpty.isDone()) {
+                notEmpty = new CompletableFuture<>();
+            }
+            future = notEmpty;
+        }
+        return future.thenCompose(ignored -> getNextBatch(partitionHandle, maxSize));
+    }
+
+    private synchronized ConnectorSplitBatch takeBatch(int maxSize) {
+        List<ConnectorSplit> batch = new ArrayList<>(Math.min(maxSize, splits.size()));
+        while (batch.size() < maxSize && !splits.isEmpty()) {
+            batch.add(splits.poll());
+        }
+        // Splits of a batch are in rowKey order, shuffle them so neighbouring ranges are not scanned together
+        Collections.shuffle(batch);
+        return new ConnectorSplitBatch(batch, noMoreSplits && splits.isEmpty());
+    }
+
+    /**
+     * A failed source is never finished, so the engine keeps calling getNextBatch and gets the failure.
+     */
+    @Override
+    public synchronized boolean isFinished() {
+        return failure == null && noMoreSplits && splits.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        generateTask.cancel(true);
+        CompletableFuture<?> future;
+        synchronized (this) {
+            splits.clear();
+            noMoreSplits = true;
+            future = notEmpty;
+        }
+        future.complete(null);
+    }
+}
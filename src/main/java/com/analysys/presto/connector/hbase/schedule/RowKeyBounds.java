@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.schedule;
+
+import io.airlift.slice.Slice;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Marker;
+import io.prestosql.spi.predicate.Range;
+import org.apache.hadoop.hbase.util.Bytes;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rows that a rowKey predicate can select, start row is inclusive and stop row is exclusive,
+ * null means unbounded. Range, BETWEEN and comparison predicates on the rowKey column become the
+ * start and stop rows of scans, instead of value filters that cannot match the rowKey.
+ * Several ranges of one predicate are bounded by their span, the engine filters the rows between them.
+ */
+class RowKeyBounds {
+
+    static final RowKeyBounds ALL = new RowKeyBounds(null, null, false);
+    private static final RowKeyBounds NONE = new RowKeyBounds(null, null, true);
+
+    /**
+     * The smallest row after a row is the row followed by a zero byte
+     */
+    private static final String ROW_SUCCESSOR_SUFFIX = "\u0000";
+
+    private final String startRow;
+    private final String stopRow;
+    private final boolean none;
+
+    private RowKeyBounds(String startRow, String stopRow, boolean none) {
+        this.startRow = startRow;
+        this.stopRow = stopRow;
+        this.none = none;
+    }
+
+    /**
+     * @param rowKeyDomain domain of rowKey column, empty if rowKey is not constrained
+     * @return bounds of the rows selected by domain
+     */
+    static RowKeyBounds of(Optional<Domain> rowKeyDomain) {
+        if (!rowKeyDomain.isPresent() || rowKeyDomain.get().isAll()) {
+            return ALL;
+        }
+        Domain domain = rowKeyDomain.get();
+        // rowKey is never null, a domain of only null selects no row
+        if (domain.isNone() || domain.getValues().isNone()) {
+            return NONE;
+        }
+        List<Range> ranges;
+        try {
+            ranges = domain.getValues().getRanges().getOrderedRanges();
+        } catch (UnsupportedOperationException e) {
+            // not a range set
+            return ALL;
+        }
+        Marker low = ranges.get(0).getLow();
+        Marker high = ranges.get(ranges.size() - 1).getHigh();
+        String startRow = null;
+        String stopRow = null;
+        if (!low.isLowerUnbounded() && low.getValue() instanceof Slice) {
+            String value = ((Slice) low.getValue()).toStringUtf8();
+            startRow = low.getBound() == Marker.Bound.ABOVE ? value + ROW_SUCCESSOR_SUFFIX : value;
+        }
+        if (!high.isUpperUnbounded() && high.getValue() instanceof Slice) {
+            String value = ((Slice) high.getValue()).toStringUtf8();
+            stopRow = high.getBound() == Marker.Bound.EXACTLY ? value + ROW_SUCCESSOR_SUFFIX : value;
+        }
+        return new RowKeyBounds(startRow, stopRow, false);
+    }
+
+    /**
+     * @param startRow start row, inclusive, null means unbounded
+     * @param stopRow  stop row, exclusive, null means unbounded
+     * @return bounds of the rows between startRow and stopRow
+     */
+    static RowKeyBounds between(String startRow, String stopRow) {
+        return new RowKeyBounds(startRow, stopRow, false);
+    }
+
+    String getStartRow() {
+        return startRow;
+    }
+
+    String getStopRow() {
+        return stopRow;
+    }
+
+    /**
+     * @return true if no row can be selected
+     */
+    boolean isNone() {
+        return none;
+    }
+
+    boolean isAll() {
+        return !none && startRow == null && stopRow == null;
+    }
+
+    /**
+     * @param otherStartRow start row, null means the first row of table
+     * @param otherStopRow  stop row, null means the last row of table
+     * @return the rows of [otherStartRow, otherStopRow) within these bounds, empty if there are none
+     */
+    Optional<RowKeyBounds> intersect(String otherStartRow, String otherStopRow) {
+        if (none) {
+            return Optional.empty();
+        }
+        String start = startRow == null || (otherStartRow != null && compare(otherStartRow, startRow) > 0)
+                ? otherStartRow : startRow;
+        String stop = stopRow == null || (otherStopRow != null && compare(otherStopRow, stopRow) < 0)
+                ? otherStopRow : stopRow;
+        if (start != null && stop != null && compare(start, stop) >= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new RowKeyBounds(start, stop, false));
+    }
+
+    private static int compare(String left, String right) {
+        return Bytes.compareTo(Bytes.toBytes(left), Bytes.toBytes(right));
+    }
+
+    @Override
+    public String toString() {
+        return none ? "RowKeyBounds{none}" : "RowKeyBounds{startRow='" + startRow + "', stopRow='" + stopRow + "'}";
+    }
+}
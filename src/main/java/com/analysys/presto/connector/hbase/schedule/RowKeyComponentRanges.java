@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.schedule;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Marker;
+import io.prestosql.spi.predicate.Range;
+import io.prestosql.spi.type.BigintType;
+import io.prestosql.spi.type.IntegerType;
+import io.prestosql.spi.type.SmallintType;
+import io.prestosql.spi.type.TinyintType;
+import io.prestosql.spi.type.Type;
+import io.prestosql.spi.type.VarcharType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Rows selected by the predicates on the components of a composite rowKey, whose fields are the
+ * text of the columns of rowKeyFormat separated by rowKeySeparator.
+ * A leading run of components with equality or IN predicates is a set of key prefixes, a range predicate
+ * on the next component narrows each prefix to the slice of its rows, like app_id = 5 AND day BETWEEN a AND b.
+ * Ranges are only taken on varchar components, the text of numbers doesn't sort like the numbers.
+ * Ranges may hold more rows than the predicates select, the engine filters them.
+ */
+class RowKeyComponentRanges {
+
+    private RowKeyComponentRanges() {
+    }
+
+    /**
+     * @param rowKeyFormat columns that rowKey consist of, in order
+     * @param separator    separator between the fields of rowKey
+     * @param domains      domains of the constrained columns, keyed by column name
+     * @param maxRanges    max count of ranges, the components after the run that exceeds it are not used
+     * @return ranges of rows after the salt part of rowKey, empty if the first component is not constrained.
+     * Only a single range can be unbounded on one side
+     */
+    static List<RowKeyBounds> of(List<String> rowKeyFormat, String separator,
+                                 Map<String, Domain> domains, int maxRanges) {
+        List<String> prefixes = ImmutableList.of("");
+        for (int i = 0; i < rowKeyFormat.size(); i++) {
+            Domain domain = domains.get(rowKeyFormat.get(i));
+            Optional<List<String>> values = getValues(domain);
+            if (!values.isPresent() || (long) prefixes.size() * values.get().size() > maxRanges) {
+                return toRanges(prefixes, i == 0, domain, separator);
+            }
+            List<String> next = new ArrayList<>(prefixes.size() * values.get().size());
+            for (String prefix : prefixes) {
+                for (String value : values.get()) {
+                    next.add(i == 0 ? value : prefix + separator + value);
+                }
+            }
+            prefixes = next;
+        }
+        return toRanges(prefixes, false, null, separator);
+    }
+
+    /**
+     * @param prefixes  fields of the leading components with equality predicates, joined by separator
+     * @param noPrefix  true if no component has an equality predicate
+     * @param domain    domain of the next component, null if it is not constrained
+     * @param separator separator between the fields of rowKey
+     */
+    private static List<RowKeyBounds> toRanges(List<String> prefixes, boolean noPrefix,
+                                               Domain domain, String separator) {
+        String afterSeparator = successor(separator);
+        Optional<Range> span = getVarcharSpan(domain);
+        if (noPrefix) {
+            return span.map(range -> toRange("", null, range, separator))
+                    .filter(range -> !range.isAll())
+                    .map(ImmutableList::of)
+                    .orElse(ImmutableList.of());
+        }
+        List<RowKeyBounds> ranges = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            // every row of prefix is the prefix itself or the prefix followed by separator and more fields
+            String stopRow = prefix + afterSeparator;
+            ranges.add(span.isPresent() ? toRange(prefix + separator, stopRow, span.get(), separator)
+                    : RowKeyBounds.between(prefix, stopRow));
+        }
+        return ranges;
+    }
+
+    /**
+     * @param keyPrefix     prefix of the rows in front of the component
+     * @param prefixStopRow stop row of all rows with keyPrefix, null if keyPrefix is empty
+     * @param span          span of the values of the component
+     * @param separator     separator between the fields of rowKey
+     */
+    private static RowKeyBounds toRange(String keyPrefix, String prefixStopRow, Range span, String separator) {
+        Marker low = span.getLow();
+        Marker high = span.getHigh();
+        String startRow = low.isLowerUnbounded() ? (keyPrefix.isEmpty() ? null : keyPrefix)
+                : keyPrefix + ((Slice) low.getValue()).toStringUtf8();
+        String stopRow = prefixStopRow;
+        if (!high.isUpperUnbounded()) {
+            String value = ((Slice) high.getValue()).toStringUtf8();
+            // A shorter value is followed by separator in rowKey, the row of 'ab' is 'ab-...' and it sorts after 'abc'
+            // if separator is greater than 'c'. The stop row is only safe if separator sorts before every char of value
+            if (value.chars().allMatch(c -> c > separator.charAt(0))) {
+                stopRow = high.getBound() == Marker.Bound.EXACTLY
+                        ? keyPrefix + value + successor(separator) : keyPrefix + value;
+            }
+        }
+        return RowKeyBounds.between(startRow, stopRow);
+    }
+
+    /**
+     * @return values of an equality or IN predicate as the text of rowKey fields, empty if domain is not such a predicate
+     */
+    static Optional<List<String>> getValues(Domain domain) {
+        if (domain == null || domain.isNullAllowed() || domain.isNone() || !isKeyType(domain.getType())) {
+            return Optional.empty();
+        }
+        List<Range> ranges;
+        try {
+            ranges = domain.getValues().getRanges().getOrderedRanges();
+        } catch (UnsupportedOperationException e) {
+            // not a range set
+            return Optional.empty();
+        }
+        ImmutableList.Builder<String> values = ImmutableList.builder();
+        for (Range range : ranges) {
+            if (!range.isSingleValue()) {
+                return Optional.empty();
+            }
+            Object value = range.getSingleValue();
+            values.add(value instanceof Slice ? ((Slice) value).toStringUtf8() : String.valueOf(value));
+        }
+        return Optional.of(values.build());
+    }
+
+    /**
+     * A component is null when the row ends before its field, like the row 'prefix' without the fields after it,
+     * such rows are out of every range of the values, so a domain that allows null has no span.
+     *
+     * @return span of the ranges of a varchar domain, empty if domain is not a range predicate of varchar
+     */
+    private static Optional<Range> getVarcharSpan(Domain domain) {
+        if (domain == null || domain.isNullAllowed() || domain.isNone() || domain.isAll()
+                || !(domain.getType() instanceof VarcharType)) {
+            return Optional.empty();
+        }
+        try {
+            Range span = domain.getValues().getRanges().getSpan();
+            return span.isAll() ? Optional.empty() : Optional.of(span);
+        } catch (UnsupportedOperationException | IllegalStateException e) {
+            // not a range set, or it has no range
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Values of these types are written to rowKey as their text
+     */
+    private static boolean isKeyType(Type type) {
+        return type instanceof VarcharType || type instanceof BigintType || type instanceof IntegerType
+                || type instanceof SmallintType || type instanceof TinyintType;
+    }
+
+    /**
+     * @return the smallest string greater than every string that starts with value
+     */
+    static String successor(String value) {
+        int last = value.length() - 1;
+        return value.substring(0, last) + (char) (value.charAt(last) + 1);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.schedule;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.hadoop.hbase.util.Bytes;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A range of rowKey scanned by a split, start row is inclusive and end row is exclusive.
+ */
+public class RowKeyRange implements Comparable<RowKeyRange> {
+
+    private final String startRow;
+    private final String endRow;
+
+    @JsonCreator
+    public RowKeyRange(@JsonProperty("startRow") String startRow,
+                       @JsonProperty("endRow") String endRow) {
+        this.startRow = requireNonNull(startRow, "startRow is null");
+        this.endRow = requireNonNull(endRow, "endRow is null");
+    }
+
+    @JsonProperty
+    public String getStartRow() {
+        return startRow;
+    }
+
+    @JsonProperty
+    public String getEndRow() {
+        return endRow;
+    }
+
+    /**
+     * Ranges are ordered the same way HBase orders rowKeys, by their bytes
+     */
+    @Override
+    public int compareTo(RowKeyRange other) {
+        int result = Bytes.compareTo(Bytes.toBytes(startRow), Bytes.toBytes(other.startRow));
+        return result != 0 ? result : Bytes.compareTo(Bytes.toBytes(endRow), Bytes.toBytes(other.endRow));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RowKeyRange that = (RowKeyRange) o;
+        return startRow.equals(that.startRow) && endRow.equals(that.endRow);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startRow, endRow);
+    }
+
+    @Override
+    public String toString() {
+        return "RowKeyRange{" +
+                "startRow='" + startRow + '\'' +
+                ", endRow='" + endRow + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.schedule;
+
+import com.analysys.presto.connector.hbase.meta.HBaseRegionSizes.RegionSize;
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.HostAddress;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.util.Bytes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Regions of a table sorted by start key, with the host of the region server that serves each of them.
+ * Split manager cuts key ranges at region boundaries, so a scanner never hops between region servers,
+ * and prefers the worker on the host of the region. Regions larger than the target split size
+ * are cut again into several sub ranges by splitPoints.
+ */
+class TableRegions {
+
+    private static final TableRegions UNKNOWN = new TableRegions(ImmutableList.of(), ImmutableList.of());
+
+    /**
+     * Printable ASCII chars, split points between two rows are numbers of this base after their common prefix
+     */
+    private static final char MIN_POINT_CHAR = ' ';
+    private static final char MAX_POINT_CHAR = '~';
+    private static final int POINT_BASE = MAX_POINT_CHAR - MIN_POINT_CHAR + 1;
+    private static final int POINT_DIGITS = 4;
+
+    private final List<byte[]> startKeys;
+    private final List<Optional<HostAddress>> hosts;
+    private final long[] bytes;
+
+    TableRegions(List<byte[]> startKeys, List<Optional<HostAddress>> hosts) {
+        this(startKeys, hosts, new long[startKeys.size()]);
+    }
+
+    private TableRegions(List<byte[]> startKeys, List<Optional<HostAddress>> hosts, long[] bytes) {
+        this.startKeys = requireNonNull(startKeys, "startKeys is null");
+        this.hosts = requireNonNull(hosts, "hosts is null");
+        this.bytes = requireNonNull(bytes, "bytes is null");
+    }
+
+    static TableRegions of(List<HRegionLocation> locations) {
+        List<HRegionLocation> sorted = new ArrayList<>(locations);
+        sorted.sort(Comparator.comparing(location -> location.getRegion().getStartKey(), Bytes.BYTES_COMPARATOR));
+        ImmutableList.Builder<byte[]> startKeys = ImmutableList.builder();
+        ImmutableList.Builder<Optional<HostAddress>> hosts = ImmutableList.builder();
+        for (HRegionLocation location : sorted) {
+            startKeys.add(location.getRegion().getStartKey());
+            hosts.add(Optional.ofNullable(location.getServerName())
+                    .map(server -> HostAddress.fromString(server.getHostname())));
+        }
+        return new TableRegions(startKeys.build(), hosts.build());
+    }
+
+    /**
+     * Regions are unknown when we failed to locate them, key ranges are not cut then.
+     */
+    static TableRegions unknown() {
+        return UNKNOWN;
+    }
+
+    /**
+     * @param regionSizes sizes of the regions, matched to the located regions by start key
+     * @return regions with sizes, a region without a matched size is taken as empty
+     */
+    TableRegions withSizes(List<RegionSize> regionSizes) {
+        Map<String, Long> sizeByStartKey = new HashMap<>();
+        for (RegionSize regionSize : regionSizes) {
+            sizeByStartKey.put(Bytes.toStringBinary(regionSize.getStartKey()), regionSize.getBytes());
+        }
+        long[] sizes = new long[startKeys.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = sizeByStartKey.getOrDefault(Bytes.toStringBinary(startKeys.get(i)), 0L);
+        }
+        return new TableRegions(startKeys, hosts, sizes);
+    }
+
+    List<byte[]> getStartKeys() {
+        return startKeys;
+    }
+
+    /**
+     * @return host of the region server serving region, empty if it is unknown
+     */
+    Optional<HostAddress> getHost(int region) {
+        return region >= 0 && region < hosts.size() ? hosts.get(region) : Optional.empty();
+    }
+
+    /**
+     * @return bytes of region, 0 if it is unknown
+     */
+    long getBytes(int region) {
+        return region >= 0 && region < bytes.length ? bytes[region] : 0L;
+    }
+
+    /**
+     * @return bytes of the region starting at startKey, 0 if there is no such region or its size is unknown
+     */
+    long getBytesOfRegion(byte[] startKey) {
+        int region = findRegion(startKeys, startKey);
+        return !startKeys.isEmpty() && Arrays.equals(startKeys.get(region), startKey) ? bytes[region] : 0L;
+    }
+
+    /**
+     * @return index of the region that row belongs to
+     */
+    int findRegion(String row) {
+        return findRegion(startKeys, row == null ? new byte[0] : Bytes.toBytes(row));
+    }
+
+    /**
+     * @return index of the last region whose start key is not greater than row
+     */
+    static int findRegion(List<byte[]> regionStartKeys, byte[] row) {
+        int region = 0;
+        int low = 0;
+        int high = regionStartKeys.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Bytes.compareTo(regionStartKeys.get(mid), row) <= 0) {
+                region = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Cut [startRow, endRow) at every region boundary inside it.
+     * Rows of split are Strings, so a boundary which doesn't survive the conversion to String is not cut,
+     * the sub range then covers the two regions rather than missing or repeating rows.
+     *
+     * @param startRow start row, null means the first row of table
+     * @param endRow   end row, null means the last row of table
+     * @return sub ranges in order, each of them within one region
+     */
+    List<SubRange> cut(String startRow, String endRow) {
+        byte[] start = startRow == null ? new byte[0] : Bytes.toBytes(startRow);
+        byte[] end = endRow == null ? null : Bytes.toBytes(endRow);
+        List<SubRange> subRanges = new ArrayList<>();
+        String subRangeStart = startRow;
+        // the first region starts with an empty key, it is never a boundary
+        for (int i = 1; i < startKeys.size(); i++) {
+            byte[] boundary = startKeys.get(i);
+            if (Bytes.compareTo(boundary, start) <= 0) {
+                continue;
+            }
+            if (end != null && Bytes.compareTo(boundary, end) >= 0) {
+                break;
+            }
+            String boundaryRow = Bytes.toString(boundary);
+            if (!Arrays.equals(Bytes.toBytes(boundaryRow), boundary)) {
+                continue;
+            }
+            subRanges.add(new SubRange(subRangeStart, boundaryRow, findRegion(subRangeStart)));
+            subRangeStart = boundaryRow;
+        }
+        subRanges.add(new SubRange(subRangeStart, endRow, findRegion(subRangeStart)));
+        return subRanges;
+    }
+
+    /**
+     * Rows that cut [startRow, endRow) into pieces of about the same key width. We can't see the keys inside
+     * a region from the client, so the points are spread evenly over the printable ASCII keys between the
+     * two rows, rows of this connector are Strings and mostly printable.
+     *
+     * @param startRow start row, null means the first row of table
+     * @param endRow   end row, null means the last row of table
+     * @param pieces   wanted count of pieces
+     * @return sorted rows strictly between startRow and endRow, at most pieces - 1 of them
+     */
+    static List<String> splitPoints(String startRow, String endRow, int pieces) {
+        List<String> points = new ArrayList<>();
+        String low = startRow == null ? "" : startRow;
+        int prefixLength = 0;
+        if (endRow != null) {
+            while (prefixLength < low.length() && prefixLength < endRow.length()
+                    && low.charAt(prefixLength) == endRow.charAt(prefixLength)) {
+                prefixLength++;
+            }
+        }
+        String prefix = low.substring(0, prefixLength);
+        long lowValue = toPointValue(low, prefixLength);
+        long highValue = endRow == null ? pow(POINT_BASE, POINT_DIGITS) : toPointValue(endRow, prefixLength);
+        byte[] previous = Bytes.toBytes(low);
+        byte[] end = endRow == null ? null : Bytes.toBytes(endRow);
+        for (int i = 1; i < pieces; i++) {
+            String point = prefix + fromPointValue(lowValue + (highValue - lowValue) * i / pieces);
+            byte[] pointBytes = Bytes.toBytes(point);
+            if (Bytes.compareTo(pointBytes, previous) > 0 && (end == null || Bytes.compareTo(pointBytes, end) < 0)) {
+                points.add(point);
+                previous = pointBytes;
+            }
+        }
+        return points;
+    }
+
+    private static long toPointValue(String row, int offset) {
+        long value = 0L;
+        for (int i = offset; i < offset + POINT_DIGITS; i++) {
+            int digit = 0;
+            if (i < row.length()) {
+                digit = Math.max(0, Math.min(POINT_BASE - 1, row.charAt(i) - MIN_POINT_CHAR));
+            }
+            value = value * POINT_BASE + digit;
+        }
+        return value;
+    }
+
+    private static String fromPointValue(long value) {
+        char[] chars = new char[POINT_DIGITS];
+        for (int i = POINT_DIGITS - 1; i >= 0; i--) {
+            chars[i] = (char) (MIN_POINT_CHAR + value % POINT_BASE);
+            value /= POINT_BASE;
+        }
+        // trailing blanks only make the point longer
+        int length = POINT_DIGITS;
+        while (length > 1 && chars[length - 1] == MIN_POINT_CHAR) {
+            length--;
+        }
+        return new String(chars, 0, length);
+    }
+
+    private static long pow(int base, int exponent) {
+        long result = 1L;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    static class SubRange {
+        final String startRow;
+        final String endRow;
+        final int region;
+
+        SubRange(String startRow, String endRow, int region) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.region = region;
+        }
+    }
+}
@@ -66,6 +66,10 @@ public interface Constant {
 
     static final String DEFAULT_HBASE_NAMESPACE_NAME = "default";
     static final String TABLE_META_FILE_TAIL = ".json";
+    /**
+     * Cached table meta info is trusted this long before the json file is checked for changes
+     */
+    int TABLE_META_CHECK_INTERVAL_MS = 3000;
 
     static final String JSON_TABLEMETA_COLUMNES = "columns";
     static final String JSON_TABLEMETA_FAMILY = "family";
@@ -75,11 +79,52 @@ public interface Constant {
 
     static final String JSON_ENCODING_UTF8 = "UTF-8";
 
+    /**
+     * Hidden column of the latest timestamp of the cells read for a row,
+     * which are the cells of the selected columns, or all cells of the row when no other column is selected
+     */
+    static final String TIMESTAMP_COLUMN_NAME = "$timestamp";
+    static final String TIMESTAMP_COLUMN_COMMENT = "Latest write time of the cells of the selected columns, "
+            + "of all cells of the row when no other column is selected";
+
     static final String ROWKEY_TAIL = "|";
 
+    int ESTIMATED_ROW_KEY_BYTES = 32;
+    int ESTIMATED_VARIABLE_WIDTH_BYTES = 64;
+
     static final String SWUNG_DASH = "~";
     static final int ROWKEY_PREFIX_SPLIT_COUNT = 20;
-    static final int MAX_SPLIT_COUNT = 100;
+    static final int MAX_ROWKEY_RANGE_COUNT = 100000;
+    static final int ROWKEY_RANGES_PER_SPLIT = 1000;
+    /**
+     * FuzzyRowFilter tries its keys one by one on every row it reads, so they are kept few
+     */
+    static final int MAX_FUZZY_ROW_KEYS = 100;
+    /**
+     * A seperate salt part is a single char since dev_0.1.5
+     */
+    static final int SALT_PART_LENGTH = 1;
+    /**
+     * Ranges of a column domain compiled into scan filters, more ranges are filtered by their span
+     */
+    static final int MAX_FILTER_RANGES_PER_COLUMN = 100;
+    static final int MAX_SPLITS_PER_REGION = 64;
+    /**
+     * Tables and projections whose observed bytes per row are kept by HBaseScanBatchSizer
+     */
+    int SCAN_ROW_SIZE_CACHE_MAX_SIZE = 1000;
+    /**
+     * Tables whose region sizes are kept by HBaseRegionSizes
+     */
+    int REGION_SIZES_CACHE_MAX_SIZE = 1000;
+
+    String SNAPSHOT_NAME_PREFIX = "ss-";
+    int SNAPSHOT_GC_INTERVAL_SECONDS = 60;
+    int SNAPSHOT_THREADS = 4;
+    long SNAPSHOT_RETRY_INITIAL_BACKOFF_MS = 100L;
+    long SNAPSHOT_RETRY_MAX_BACKOFF_MS = 5000L;
+    int SNAPSHOT_CACHE_MAX_SIZE = 1000;
+    int SNAPSHOT_CACHE_EXPIRE_MINUTES = 30;
 
     public static final String HBASE_NAMESPACE_DEFAULT = "default";
 
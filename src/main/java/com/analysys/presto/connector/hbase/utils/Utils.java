@@ -13,6 +13,7 @@
  */
 package com.analysys.presto.connector.hbase.utils;
 
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
 import com.analysys.presto.connector.hbase.meta.HBaseColumnMetadata;
 import com.analysys.presto.connector.hbase.meta.TableMetaInfo;
 import com.analysys.presto.connector.hbase.schedule.ConditionInfo;
@@ -28,6 +29,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.SnapshotProtos;
@@ -51,6 +53,20 @@ public class Utils {
 
     public static final Logger logger = Logger.get(Utils.class);
 
+    /**
+     * Json file of table in metaDir
+     *
+     * @param schemaName schema name
+     * @param tableName  table name
+     * @param metaDir    meta dir
+     * @return json file
+     */
+    public static File getTableMetaFile(String schemaName, String tableName, String metaDir) {
+        return new File(metaDir + File.separator
+                + (schemaName == null || "".equals(schemaName) ? DEFAULT_HBASE_NAMESPACE_NAME : schemaName)
+                + File.separator + tableName + TABLE_META_FILE_TAIL);
+    }
+
     /**
      * Read table json from metaDir by schema name and table name
      *
@@ -61,10 +77,7 @@ public class Utils {
      */
     private static String readTableJson(String schemaName, String tableName, String metaDir) {
         try {
-            String tableMetaPath = metaDir + File.separator
-                    + (schemaName == null || "".equals(schemaName) ? DEFAULT_HBASE_NAMESPACE_NAME : schemaName)
-                    + File.separator + tableName + TABLE_META_FILE_TAIL;
-            return FileUtils.readFileToString(new File(tableMetaPath), JSON_ENCODING_UTF8);
+            return FileUtils.readFileToString(getTableMetaFile(schemaName, tableName, metaDir), JSON_ENCODING_UTF8);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
@@ -294,6 +307,36 @@ public class Utils {
         return str == null || "".equals(str);
     }
 
+    /**
+     * Estimate bytes of a row by the types of columns, when we haven't read any row of the table yet.
+     *
+     * @param columns columns of the row
+     * @return estimated bytes of the cells of a row
+     */
+    public static long estimateBytesPerRow(List<HBaseColumnHandle> columns) {
+        long bytes = 0L;
+        for (HBaseColumnHandle hch : columns) {
+            bytes += estimateCellBytes(hch);
+        }
+        return Math.max(bytes, ESTIMATED_ROW_KEY_BYTES);
+    }
+
+    /**
+     * @param hch column
+     * @return estimated bytes of a cell of column, 0 if the column is not stored as cells:
+     * rowKey, its components and $timestamp
+     */
+    public static long estimateCellBytes(HBaseColumnHandle hch) {
+        if (hch.isRowKey() || hch.isRowKeyComponent() || hch.isTimestamp()) {
+            return 0L;
+        }
+        Type type = hch.getColumnType();
+        int valueBytes = type instanceof FixedWidthType
+                ? ((FixedWidthType) type).getFixedSize() : ESTIMATED_VARIABLE_WIDTH_BYTES;
+        return KeyValue.KEYVALUE_INFRASTRUCTURE_SIZE + KeyValue.KEY_INFRASTRUCTURE_SIZE
+                + ESTIMATED_ROW_KEY_BYTES + hch.getFamily().length() + hch.getColumnName().length() + valueBytes;
+    }
+
 }
 
 
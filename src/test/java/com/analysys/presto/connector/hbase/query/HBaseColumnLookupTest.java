@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.type.BigintType;
+import io.prestosql.spi.type.DecimalType;
+import io.prestosql.spi.type.IntegerType;
+import io.prestosql.spi.type.VarcharType;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HBaseColumnLookupTest {
+
+    private static HBaseColumnHandle column(String family, String name, int ordinal, boolean rowKey) {
+        return new HBaseColumnHandle("hbase", family, name, VarcharType.VARCHAR, ordinal, rowKey);
+    }
+
+    private static KeyValue cell(String family, String qualifier) {
+        return new KeyValue(Bytes.toBytes("row"), Bytes.toBytes(family), Bytes.toBytes(qualifier), Bytes.toBytes("v"));
+    }
+
+    @Test
+    public void testFindChannelBySameQualifierInDifferentFamilies() {
+        HBaseColumnLookup lookup = new HBaseColumnLookup(ImmutableList.of(
+                column("f2", "name", 0, false),
+                column("", "rowkey", 1, true),
+                column("f1", "name", 2, false),
+                column("f1", "age", 3, false)), "rowkey");
+
+        Assert.assertEquals(0, lookup.findChannel(cell("f2", "name")));
+        Assert.assertEquals(2, lookup.findChannel(cell("f1", "name")));
+        Assert.assertEquals(3, lookup.findChannel(cell("f1", "age")));
+        Assert.assertArrayEquals(new int[]{1}, lookup.getRowKeyChannels());
+    }
+
+    @Test
+    public void testFindChannelNotFound() {
+        HBaseColumnLookup lookup = new HBaseColumnLookup(ImmutableList.of(column("f1", "name", 0, false)), "rowkey");
+
+        Assert.assertEquals(HBaseColumnLookup.NOT_FOUND, lookup.findChannel(cell("f2", "name")));
+        Assert.assertEquals(HBaseColumnLookup.NOT_FOUND, lookup.findChannel(cell("f1", "nam")));
+        Assert.assertEquals(HBaseColumnLookup.NOT_FOUND, lookup.findChannel(cell("f1", "names")));
+        Assert.assertEquals(0, lookup.getRowKeyChannels().length);
+    }
+
+    @Test
+    public void testDecodeRowKeyComponent() {
+        HBaseColumnLookup lookup = new HBaseColumnLookup(ImmutableList.of(
+                new HBaseColumnHandle("hbase", "", "uid", BigintType.BIGINT, 0, false, 2, "-"),
+                new HBaseColumnHandle("hbase", "", "app_id", BigintType.BIGINT, 1, false, 1, "-")), "rowkey");
+        byte[] row = Bytes.toBytes("a-5-42");
+
+        Assert.assertArrayEquals(new int[]{0, 1}, lookup.getRowKeyComponentChannels());
+        Assert.assertEquals(42L, lookup.decodeRowKeyComponent(0, row, 0, row.length));
+        Assert.assertEquals(5L, lookup.decodeRowKeyComponent(1, row, 0, row.length));
+        Assert.assertNull(lookup.decodeRowKeyComponent(0, row, 0, 3));
+    }
+
+    @Test
+    public void testDecodeDecimalAndNarrowIntegerComponents() {
+        HBaseColumnLookup lookup = new HBaseColumnLookup(ImmutableList.of(
+                new HBaseColumnHandle("hbase", "", "price", DecimalType.createDecimalType(10, 2), 0, false, 0, "-"),
+                new HBaseColumnHandle("hbase", "", "version", IntegerType.INTEGER, 1, false, 1, "-")), "rowkey");
+
+        byte[] row = Bytes.toBytes("1.5-42");
+        Assert.assertEquals(150L, lookup.decodeRowKeyComponent(0, row, 0, row.length));
+        Assert.assertEquals(42L, lookup.decodeRowKeyComponent(1, row, 0, row.length));
+
+        byte[] outOfRange = Bytes.toBytes("123456789.5-4294967296");
+        Assert.assertNull(lookup.decodeRowKeyComponent(0, outOfRange, 0, outOfRange.length));
+        Assert.assertNull(lookup.decodeRowKeyComponent(1, outOfRange, 0, outOfRange.length));
+    }
+}
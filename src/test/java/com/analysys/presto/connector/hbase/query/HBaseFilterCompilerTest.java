@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Range;
+import io.prestosql.spi.predicate.TupleDomain;
+import io.prestosql.spi.predicate.ValueSet;
+import io.prestosql.spi.type.BigintType;
+import io.prestosql.spi.type.DoubleType;
+import io.prestosql.spi.type.TimestampType;
+import io.prestosql.spi.type.VarcharType;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Optional;
+
+public class HBaseFilterCompilerTest {
+
+    private static final HBaseColumnHandle AGE = new HBaseColumnHandle("hbase", "f", "age", BigintType.BIGINT, 0, false);
+    private static final HBaseColumnHandle SCORE = new HBaseColumnHandle("hbase", "f", "score", DoubleType.DOUBLE, 1, false);
+
+    private static boolean matches(Filter filter, String qualifier, byte[] value) throws IOException {
+        filter.reset();
+        if (value != null) {
+            KeyValue cell = new KeyValue(Bytes.toBytes("row"), Bytes.toBytes("f"), Bytes.toBytes(qualifier), value);
+            if (filter.filterCell(cell) != Filter.ReturnCode.INCLUDE) {
+                return false;
+            }
+        }
+        return !filter.filterRow();
+    }
+
+    @Test
+    public void testBetweenOfSignedLongs() throws IOException {
+        Filter filter = HBaseFilterCompiler.compile(AGE,
+                Domain.create(ValueSet.ofRanges(Range.range(BigintType.BIGINT, -5L, true, 3L, true)), false)).get();
+
+        Assert.assertFalse(matches(filter, "age", Bytes.toBytes(-6L)));
+        Assert.assertTrue(matches(filter, "age", Bytes.toBytes(-5L)));
+        Assert.assertTrue(matches(filter, "age", Bytes.toBytes(-1L)));
+        Assert.assertTrue(matches(filter, "age", Bytes.toBytes(0L)));
+        Assert.assertTrue(matches(filter, "age", Bytes.toBytes(3L)));
+        Assert.assertFalse(matches(filter, "age", Bytes.toBytes(4L)));
+        Assert.assertFalse(matches(filter, "age", Bytes.toBytes(Long.MAX_VALUE)));
+        Assert.assertFalse(matches(filter, "age", null));
+        Assert.assertFalse(matches(filter, "age", new byte[0]));
+    }
+
+    @Test
+    public void testGreaterThanNegativeDoubleOrNull() throws IOException {
+        Filter filter = HBaseFilterCompiler.compile(SCORE,
+                Domain.create(ValueSet.ofRanges(Range.greaterThan(DoubleType.DOUBLE, -1.5d)), true)).get();
+
+        Assert.assertFalse(matches(filter, "score", Bytes.toBytes(-2.0d)));
+        Assert.assertFalse(matches(filter, "score", Bytes.toBytes(Double.NEGATIVE_INFINITY)));
+        Assert.assertTrue(matches(filter, "score", Bytes.toBytes(-1.0d)));
+        Assert.assertTrue(matches(filter, "score", Bytes.toBytes(-0.0d)));
+        Assert.assertTrue(matches(filter, "score", Bytes.toBytes(0.0d)));
+        Assert.assertTrue(matches(filter, "score", Bytes.toBytes(Double.POSITIVE_INFINITY)));
+        Assert.assertTrue(matches(filter, "score", null));
+        Assert.assertTrue(matches(filter, "score", new byte[0]));
+    }
+
+    @Test
+    public void testNotNullAndUnreadColumns() throws IOException {
+        Filter filter = HBaseFilterCompiler.compile(AGE, Domain.notNull(BigintType.BIGINT)).get();
+        Assert.assertTrue(matches(filter, "age", Bytes.toBytes(-1L)));
+        Assert.assertFalse(matches(filter, "age", new byte[0]));
+        Assert.assertFalse(matches(filter, "age", null));
+
+        TupleDomain<ColumnHandle> constraint = TupleDomain.withColumnDomains(ImmutableMap.of(
+                AGE, Domain.singleValue(BigintType.BIGINT, 1L)));
+        Assert.assertEquals(Optional.empty(), HBaseFilterCompiler.compile(constraint, ImmutableSet.of(SCORE)));
+        Assert.assertTrue(HBaseFilterCompiler.compile(constraint, ImmutableSet.of(AGE, SCORE)).isPresent());
+    }
+
+    @Test
+    public void testTimeRangeOfTimestampColumn() {
+        HBaseColumnHandle timestamp = HBaseColumnHandle.timestampColumn("hbase", 2);
+        HBaseColumnHandle rowKey = new HBaseColumnHandle("hbase", "", "rowkey", VarcharType.VARCHAR, 3, true);
+        TupleDomain<ColumnHandle> constraint = TupleDomain.withColumnDomains(ImmutableMap.of(
+                AGE, Domain.singleValue(BigintType.BIGINT, 1L),
+                timestamp, Domain.create(ValueSet.ofRanges(
+                        Range.range(TimestampType.TIMESTAMP, 1000L, false, 2000L, true)), false)));
+        TimeRange timeRange = HBaseFilterCompiler.compileTimeRange(constraint,
+                ImmutableList.of(rowKey, timestamp)).get();
+
+        // the upper bound would hide newer cells of a row, only the lower bound is pushed down
+        Assert.assertEquals(1001L, timeRange.getMin());
+        Assert.assertEquals(Long.MAX_VALUE, timeRange.getMax());
+        Assert.assertFalse(HBaseFilterCompiler.compileTimeRange(TupleDomain.withColumnDomains(ImmutableMap.of(
+                timestamp, Domain.create(ValueSet.ofRanges(
+                        Range.lessThan(TimestampType.TIMESTAMP, 1000L)), false))),
+                ImmutableList.of(timestamp)).isPresent());
+        Assert.assertFalse(HBaseFilterCompiler.compileTimeRange(TupleDomain.withColumnDomains(ImmutableMap.of(
+                AGE, Domain.singleValue(BigintType.BIGINT, 1L))), ImmutableList.of(timestamp)).isPresent());
+    }
+
+    @Test
+    public void testNoTimeRangeWhenValueColumnsAreRead() {
+        HBaseColumnHandle timestamp = HBaseColumnHandle.timestampColumn("hbase", 2);
+        TupleDomain<ColumnHandle> constraint = TupleDomain.withColumnDomains(ImmutableMap.of(
+                timestamp, Domain.create(ValueSet.ofRanges(
+                        Range.greaterThan(TimestampType.TIMESTAMP, 1000L)), false)));
+
+        // select age, score ... where $timestamp > 1000 must still read the older cells of score
+        Assert.assertFalse(HBaseFilterCompiler.compileTimeRange(constraint,
+                ImmutableList.of(AGE, SCORE, timestamp)).isPresent());
+        Assert.assertTrue(HBaseFilterCompiler.compileTimeRange(constraint, ImmutableList.of(timestamp)).isPresent());
+        // no column at all, the row is matched by any of its cells
+        Assert.assertTrue(HBaseFilterCompiler.compileTimeRange(constraint, ImmutableList.of()).isPresent());
+    }
+
+    @Test
+    public void testLatestTimestampFollowsProjection() {
+        KeyValue age = new KeyValue(Bytes.toBytes("row"), Bytes.toBytes("f"), Bytes.toBytes("age"), 1000L,
+                Bytes.toBytes(1L));
+        KeyValue score = new KeyValue(Bytes.toBytes("row"), Bytes.toBytes("f"), Bytes.toBytes("score"), 3000L,
+                Bytes.toBytes(1.0d));
+
+        // $timestamp covers the cells that are read, which are the ones of the selected columns
+        Assert.assertEquals(3000L, HBaseColumnLookup.getLatestTimestamp(new KeyValue[]{age, score}));
+        Assert.assertEquals(1000L, HBaseColumnLookup.getLatestTimestamp(new KeyValue[]{age}));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import com.analysys.presto.connector.hbase.meta.HBaseColumnHandle;
+import com.analysys.presto.connector.hbase.meta.HBaseConfig;
+import com.analysys.presto.connector.hbase.schedule.HBaseSplit;
+import com.google.common.collect.ImmutableList;
+import io.prestosql.spi.PrestoException;
+import io.prestosql.spi.type.VarcharType;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class HBaseResultPrefetcherTest {
+
+    private static Result row(int i) {
+        return Result.create(new KeyValue[]{new KeyValue(Bytes.toBytes("row" + i), Bytes.toBytes("f"),
+                Bytes.toBytes("q"), Bytes.toBytes("v"))});
+    }
+
+    /**
+     * Returns rows results, then fails if failAtEnd, or ends
+     */
+    private static class FakeScanner implements ResultScanner {
+        private int rows;
+        private final boolean failAtEnd;
+
+        FakeScanner(int rows, boolean failAtEnd) {
+            this.rows = rows;
+            this.failAtEnd = failAtEnd;
+        }
+
+        @Override
+        public Result next() throws IOException {
+            if (rows == 0) {
+                if (failAtEnd) {
+                    throw new IOException("scanner failed");
+                }
+                return null;
+            }
+            rows--;
+            return row(rows);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean renewLease() {
+            return true;
+        }
+
+        @Override
+        public ScanMetrics getScanMetrics() {
+            return null;
+        }
+    }
+
+    private static HBaseScanRecordCursor cursor(int rows, boolean failAtEnd) {
+        List<HBaseColumnHandle> columns = ImmutableList.of(
+                new HBaseColumnHandle("hbase", "f", "q", VarcharType.VARCHAR, 0, false));
+        HBaseSplit split = new HBaseSplit("hbase", "ns", "t", "rowkey", ImmutableList.of(), null, null,
+                ImmutableList.of(), false, null, null, null, null, null);
+        // stats are not exported by this test
+        return new HBaseScanRecordCursor(columns, split, new FakeScanner(rows, failAtEnd),
+                new HBaseColumnLookup(columns, "rowkey"), new HBaseScanBatchSizer(new HBaseConfig()),
+                "ns:t", null);
+    }
+
+    private static int drain(HBaseResultPrefetcher prefetcher) throws Exception {
+        int rows = 0;
+        while (!prefetcher.isFinished()) {
+            prefetcher.isBlocked().get(10, TimeUnit.SECONDS);
+            List<Result> batch = prefetcher.poll();
+            if (batch != null) {
+                rows += batch.size();
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void testSplitsShareOneThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            HBaseResultPrefetcher first = new HBaseResultPrefetcher(cursor(10, false), executor, 2, 1);
+            HBaseResultPrefetcher second = new HBaseResultPrefetcher(cursor(7, false), executor, 2, 1);
+            // the first split is not read yet, its full queue must not hold the only thread
+            Assert.assertEquals(7, drain(second));
+            Assert.assertEquals(10, drain(first));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = PrestoException.class)
+    public void testScannerFailureIsThrown() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            drain(new HBaseResultPrefetcher(cursor(3, true), executor, 2, 1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = PrestoException.class)
+    public void testScannerFailureIsThrownByCursor() {
+        HBaseScanRecordCursor cursor = cursor(3, true);
+        while (cursor.advanceNextPosition()) {
+            Assert.assertFalse(cursor.isNull(0));
+        }
+    }
+}
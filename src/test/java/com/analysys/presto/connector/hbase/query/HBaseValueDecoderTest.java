@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analysys.presto.connector.hbase.query;
+
+import io.prestosql.spi.block.Block;
+import io.prestosql.spi.block.BlockBuilder;
+import io.prestosql.spi.type.ArrayType;
+import io.prestosql.spi.type.BigintType;
+import io.prestosql.spi.type.BooleanType;
+import io.prestosql.spi.type.DecimalType;
+import io.prestosql.spi.type.Type;
+import io.prestosql.spi.type.VarcharType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+import java.math.BigDecimal;
+
+public class HBaseValueDecoderTest {
+
+    private static void decode(Type type, byte[] value, int channel, HBaseRowBuffer row) {
+        HBaseValueDecoder.decode(type, value, 0, value.length, channel, row);
+    }
+
+    @Test
+    public void testDecodeIntoRowBuffer() {
+        HBaseRowBuffer row = new HBaseRowBuffer(5);
+        decode(BigintType.BIGINT, Bytes.toBytes(42L), 0, row);
+        decode(BooleanType.BOOLEAN, Bytes.toBytes(1), 1, row);
+        decode(DecimalType.createDecimalType(10, 2), Bytes.toBytes(new BigDecimal("1.50")), 2, row);
+        decode(BigintType.BIGINT, new byte[0], 3, row);
+        decode(VarcharType.VARCHAR, new byte[0], 4, row);
+
+        Assert.assertEquals(42L, row.getLong(0));
+        Assert.assertEquals(1L, row.getLong(1));
+        Assert.assertEquals(150L, row.getLong(2));
+        // an empty value is null, beside varchar
+        Assert.assertTrue(row.isNull(3));
+        Assert.assertFalse(row.isNull(4));
+        Assert.assertEquals(0, row.getSlice(4).length());
+    }
+
+    @Test
+    public void testWriteArray() {
+        ArrayType type = new ArrayType(VarcharType.VARCHAR);
+        HBaseRowBuffer row = new HBaseRowBuffer(1);
+        decode(type, Bytes.toBytes("a\001\001b"), 0, row);
+
+        BlockBuilder builder = type.createBlockBuilder(null, 1);
+        HBaseValueDecoder.writeArray(type, builder, row.getSlice(0));
+        Block elements = type.getObject(builder.build(), 0);
+        Assert.assertEquals(2, elements.getPositionCount());
+        Assert.assertEquals("b", VarcharType.VARCHAR.getSlice(elements, 1).toStringUtf8());
+    }
+}
@@ -1,7 +1,24 @@
 package com.analysys.presto.connector.hbase.schedule;
 
+import io.airlift.slice.Slices;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Range;
+import io.prestosql.spi.predicate.ValueSet;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import static io.prestosql.spi.type.VarcharType.VARCHAR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class HBaseSplitManagerTest {
 
@@ -18,12 +35,140 @@ public class HBaseSplitManagerTest {
         System.out.println("startAndEnds.size=" + startAndEnds.size());
         System.out.println(Arrays.toString(startAndEnds.toArray()));*/
     }
-}
 
+    @Test
+    public void testGroupRowKeyRangesByRegion() {
+        List<RowKeyRange> ranges = Arrays.asList(
+                new RowKeyRange("c1", "c1|"), new RowKeyRange("a1", "a1|"), new RowKeyRange("a2", "a2|"),
+                new RowKeyRange("b1", "b1|"), new RowKeyRange("a1", "a1|"));
+        List<byte[]> regionStartKeys = Arrays.asList(Bytes.toBytes(""), Bytes.toBytes("b"), Bytes.toBytes("c"));
+
+        List<List<RowKeyRange>> groups = HBaseSplitManager.groupRowKeyRangesByRegion(ranges, regionStartKeys, 10);
+        assertEquals(3, groups.size());
+        assertEquals(Arrays.asList(new RowKeyRange("a1", "a1|"), new RowKeyRange("a2", "a2|")), groups.get(0));
+        assertEquals(Collections.singletonList(new RowKeyRange("b1", "b1|")), groups.get(1));
+        assertEquals(Collections.singletonList(new RowKeyRange("c1", "c1|")), groups.get(2));
+
+        // unknown regions, only the max ranges of a split limit the groups
+        groups = HBaseSplitManager.groupRowKeyRangesByRegion(ranges, Collections.emptyList(), 3);
+        assertEquals(2, groups.size());
+        assertEquals(3, groups.get(0).size());
+        assertEquals(1, groups.get(1).size());
+    }
+
+    @Test
+    public void testCutAtRegionBoundaries() {
+        TableRegions regions = new TableRegions(
+                Arrays.asList(Bytes.toBytes(""), Bytes.toBytes("b"), Bytes.toBytes("d")),
+                Arrays.asList(Optional.empty(), Optional.empty(), Optional.empty()));
+
+        List<TableRegions.SubRange> subRanges = regions.cut(null, null);
+        assertEquals(3, subRanges.size());
+        assertNull(subRanges.get(0).startRow);
+        assertEquals("b", subRanges.get(0).endRow);
+        assertEquals("d", subRanges.get(2).startRow);
+        assertNull(subRanges.get(2).endRow);
+        assertEquals(2, subRanges.get(2).region);
+
+        subRanges = regions.cut("a", "c");
+        assertEquals(2, subRanges.size());
+        assertEquals("a", subRanges.get(0).startRow);
+        assertEquals("b", subRanges.get(0).endRow);
+        assertEquals("b", subRanges.get(1).startRow);
+        assertEquals("c", subRanges.get(1).endRow);
+        assertEquals(1, subRanges.get(1).region);
+
+        assertEquals(1, regions.cut("b", "d").size());
+    }
+
+    @Test
+    public void testSplitPoints() {
+        List<String> points = TableRegions.splitPoints("a", "b", 4);
+        assertEquals(3, points.size());
+        String previous = "a";
+        for (String point : points) {
+            assertTrue(point.startsWith("a"));
+            assertTrue(Bytes.compareTo(Bytes.toBytes(point), Bytes.toBytes(previous)) > 0);
+            previous = point;
+        }
+        assertTrue(Bytes.compareTo(Bytes.toBytes(previous), Bytes.toBytes("b")) < 0);
+
+        assertEquals(7, TableRegions.splitPoints(null, null, 8).size());
+        assertTrue(TableRegions.splitPoints("a", "b", 1).isEmpty());
+    }
+
+    @Test
+    public void testRowKeyBounds() {
+        assertTrue(RowKeyBounds.of(Optional.empty()).isAll());
+        assertTrue(RowKeyBounds.of(Optional.of(Domain.none(VARCHAR))).isNone());
+        assertFalse(RowKeyBounds.of(Optional.of(Domain.none(VARCHAR))).intersect(null, null).isPresent());
+
+        RowKeyBounds bounds = RowKeyBounds.ALL.intersect("2020-01", "2020-03").get();
+        assertFalse(bounds.intersect("2020-04", null).isPresent());
+        RowKeyBounds intersection = bounds.intersect(null, "2020-02").get();
+        assertEquals("2020-01", intersection.getStartRow());
+        assertEquals("2020-02", intersection.getStopRow());
+    }
+
+    @Test
+    public void testRowKeyComponentRanges() {
+        List<String> format = Arrays.asList("app_id", "uid", "day");
+        Map<String, Domain> domains = new HashMap<>();
+        assertTrue(RowKeyComponentRanges.of(format, "-", domains, 100).isEmpty());
 
+        domains.put("app_id", Domain.multipleValues(BIGINT, Arrays.asList(5L, 6L)));
+        List<RowKeyBounds> ranges = RowKeyComponentRanges.of(format, "-", domains, 100);
+        assertEquals(2, ranges.size());
+        assertEquals("5", ranges.get(0).getStartRow());
+        assertEquals("5.", ranges.get(0).getStopRow());
+        assertEquals("6", ranges.get(1).getStartRow());
 
+        domains.put("uid", Domain.singleValue(BIGINT, 7L));
+        ranges = RowKeyComponentRanges.of(format, "-", domains, 100);
+        assertEquals("5-7", ranges.get(0).getStartRow());
+        assertEquals("5-7.", ranges.get(0).getStopRow());
 
+        // too many prefixes, only the leading components are used
+        domains.put("uid", Domain.multipleValues(BIGINT, Arrays.asList(7L, 8L)));
+        ranges = RowKeyComponentRanges.of(format, "-", domains, 3);
+        assertEquals(2, ranges.size());
+        assertEquals("5", ranges.get(0).getStartRow());
+    }
 
+    @Test
+    public void testNullableRowKeyComponentRange() {
+        List<String> format = Arrays.asList("app_id", "day");
+        Map<String, Domain> domains = new HashMap<>();
+        domains.put("app_id", Domain.singleValue(VARCHAR, Slices.utf8Slice("5")));
+        domains.put("day", Domain.create(ValueSet.ofRanges(Range.greaterThanOrEqual(VARCHAR, Slices.utf8Slice("x"))), false));
+        List<RowKeyBounds> ranges = RowKeyComponentRanges.of(format, "-", domains, 100);
+        assertEquals("5-x", ranges.get(0).getStartRow());
 
+        // day IS NULL OR day >= 'x' also selects the row '5' which has no day field
+        domains.put("day", Domain.create(ValueSet.ofRanges(Range.greaterThanOrEqual(VARCHAR, Slices.utf8Slice("x"))), true));
+        ranges = RowKeyComponentRanges.of(format, "-", domains, 100);
+        assertEquals(1, ranges.size());
+        assertEquals("5", ranges.get(0).getStartRow());
+        assertEquals("5.", ranges.get(0).getStopRow());
+    }
 
+    @Test
+    public void testFuzzyRowKeys() {
+        List<String> format = Arrays.asList("app_id", "uid", "day");
+        List<Integer> lengths = Arrays.asList(2, 3, 2);
+        Map<String, Domain> domains = new HashMap<>();
+        assertTrue(FuzzyRowKey.of(format, lengths, "-", 1, domains, 100).isEmpty());
 
+        // a value of another width never matches the field
+        domains.put("uid", Domain.singleValue(BIGINT, 12L));
+        assertTrue(FuzzyRowKey.of(format, lengths, "-", 1, domains, 100).isEmpty());
+
+        domains.put("uid", Domain.multipleValues(BIGINT, Arrays.asList(123L, 456L)));
+        List<FuzzyRowKey> keys = FuzzyRowKey.of(format, lengths, "-", 1, domains, 100);
+        assertEquals(2, keys.size());
+        assertEquals("-", Bytes.toString(keys.get(0).getRow(), 1, 1));
+        assertEquals("123", Bytes.toString(keys.get(0).getRow(), 5, 3));
+        assertEquals("456", Bytes.toString(keys.get(1).getRow(), 5, 3));
+        assertTrue(Arrays.equals(new byte[]{1, 0, 1, 1, 0, 0, 0, 0, 0, 1, 1}, keys.get(0).getMask()));
+    }
+}